@@ -0,0 +1,46 @@
+package io.github.devops.flvexporter.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// 展开全部URL并生成流名称(getFlatUrls + extractPathAndId)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FlvConfigBenchmark {
+
+    @Param({"10000"})
+    private int streams;
+
+    private FlvConfig flvConfig;
+
+    @Setup
+    public void setup() {
+        // 100个项目平均分配，URL形如 https://edgeN.example.com/live/streamN.flv
+        Map<String, List<String>> urls = new LinkedHashMap<>();
+        for (int i = 0; i < streams; i++) {
+            String project = "p" + (i % 100);
+            urls.computeIfAbsent(project, p -> new ArrayList<>())
+                    .add("https://edge" + (i % 40) + ".example.com/live/stream" + i + ".flv?token=abc" + i);
+        }
+        flvConfig = new FlvConfig();
+        flvConfig.setUrls(urls);
+    }
+
+    @Benchmark
+    public List<FlvConfig.FlvUrl> flatUrls() {
+        return flvConfig.getFlatUrls();
+    }
+}
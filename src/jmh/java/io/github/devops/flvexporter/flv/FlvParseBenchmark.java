@@ -0,0 +1,106 @@
+package io.github.devops.flvexporter.flv;
+
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// FLV解析吞吐：探测解析(拿到元数据和关键帧即停止)和持续读取(解析全部Tag头)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FlvParseBenchmark {
+
+    // 元数据 + 序列头 + 若干音频帧 + 关键帧，模拟一次探测读到的数据
+    private byte[] probe;
+    // 约4MB，25fps视频 + 43fps音频
+    private byte[] stream;
+
+    private final FlvTagParser parser = new FlvTagParser();
+    private final FlvThroughputReader reader = new FlvThroughputReader(16 * 1024, 1000, null);
+
+    @Setup
+    public void setup() {
+        Buffer head = header();
+        writeTag(head, FlvTagParser.TAG_SCRIPT, 0, metadata());
+        writeTag(head, FlvTagParser.TAG_VIDEO, 0, new byte[]{0x17, 0, 0, 0, 0, 1, 0x64, 0, 0x1F});
+        writeTag(head, FlvTagParser.TAG_AUDIO, 0, new byte[]{(byte) 0xAF, 0, 0x12, 0x10});
+        for (int i = 0; i < 8; i++) {
+            writeTag(head, FlvTagParser.TAG_AUDIO, i * 23, new byte[370]);
+        }
+        writeTag(head, FlvTagParser.TAG_VIDEO, 200, frame(true, 60_000));
+        probe = head.readByteArray();
+
+        Buffer body = header();
+        writeTag(body, FlvTagParser.TAG_SCRIPT, 0, metadata());
+        int videoTs = 0;
+        int audioTs = 0;
+        while (body.size() < 4 * 1024 * 1024) {
+            writeTag(body, FlvTagParser.TAG_VIDEO, videoTs, frame(videoTs % 2000 == 0, videoTs % 2000 == 0 ? 60_000 : 8_000));
+            videoTs += 40;
+            while (audioTs < videoTs) {
+                writeTag(body, FlvTagParser.TAG_AUDIO, audioTs, new byte[370]);
+                audioTs += 23;
+            }
+        }
+        stream = body.readByteArray();
+    }
+
+    @Benchmark
+    public FlvProbeResult probeParse() {
+        return parser.parse(new Buffer().write(probe), 256 * 1024, System.nanoTime());
+    }
+
+    @Benchmark
+    public FlvThroughputResult sustainedRead() {
+        return reader.read(new Buffer().write(stream), 60_000);
+    }
+
+    private static byte[] frame(boolean keyframe, int size) {
+        byte[] data = new byte[size];
+        data[0] = (byte) (keyframe ? 0x17 : 0x27);
+        data[1] = 1;
+        return data;
+    }
+
+    private static Buffer header() {
+        return new Buffer()
+                .write(new byte[]{'F', 'L', 'V', 1, 0x05})
+                .writeInt(9)
+                .writeInt(0);
+    }
+
+    private static void writeTag(Buffer out, int type, int timestamp, byte[] data) {
+        out.writeByte(type);
+        out.writeByte(data.length >> 16).writeShort(data.length & 0xFFFF);
+        out.writeByte((timestamp >> 16) & 0xFF).writeShort(timestamp & 0xFFFF).writeByte((timestamp >>> 24) & 0xFF);
+        out.writeByte(0).writeShort(0);
+        out.write(data);
+        out.writeInt(11 + data.length);
+    }
+
+    private static byte[] metadata() {
+        Buffer amf = new Buffer();
+        amf.writeByte(2).writeShort(10).writeUtf8("onMetaData");
+        amf.writeByte(8).writeInt(4);
+        number(amf, "width", 1920);
+        number(amf, "height", 1080);
+        number(amf, "framerate", 25);
+        number(amf, "videocodecid", 7);
+        amf.writeShort(0).writeByte(9);
+        return amf.readByteArray();
+    }
+
+    private static void number(Buffer amf, String key, double value) {
+        byte[] name = key.getBytes(StandardCharsets.US_ASCII);
+        amf.writeShort(name.length).write(name);
+        amf.writeByte(0).writeLong(Double.doubleToLongBits(value));
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.config.FlvConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+// 渲染 /actuator/prometheus 的文本输出
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScrapeBenchmark {
+
+    @Param({"10000", "50000"})
+    private int streams;
+
+    // 是否注册深度检测的信息类Gauge
+    @Param({"false", "true"})
+    private boolean deep;
+
+    private PrometheusMeterRegistry registry;
+
+    @Setup
+    public void setup() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        for (int i = 0; i < streams; i++) {
+            StreamState state = new StreamState(new FlvConfig.FlvUrl("p" + (i % 100) + "_live_stream" + i,
+                    "https://edge" + (i % 40) + ".example.com/live/stream" + i + ".flv", "p" + (i % 100), "Stream " + i));
+            state.registerMeters(registry, deep);
+            state.recordStart();
+            state.recordSuccess(i % 1000, null, 1_000_000L);
+        }
+    }
+
+    @Benchmark
+    public String scrape() {
+        return registry.scrape();
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.config.FlvConfig;
+import io.github.devops.flvexporter.flv.FlvProbeResult;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 单次检测完成后的指标更新路径，与 FlvCheckService.recordResult 一致
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StreamStateBenchmark {
+
+    @Param({"10000"})
+    private int streams;
+
+    private StreamState[] states;
+    private FlvProbeResult info;
+
+    @Setup
+    public void setup() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        states = new StreamState[streams];
+        for (int i = 0; i < streams; i++) {
+            StreamState state = new StreamState(new FlvConfig.FlvUrl("p" + (i % 100) + "_live_stream" + i,
+                    "https://edge" + (i % 40) + ".example.com/live/stream" + i + ".flv", "p" + (i % 100), "Stream " + i));
+            state.registerMeters(registry, true);
+            states[i] = state;
+        }
+        info = new FlvProbeResult();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordSuccess() {
+        record();
+    }
+
+    // 多个检测线程同时更新，共享的项目级计数器存在竞争
+    @Benchmark
+    @Threads(8)
+    public void recordSuccessContended() {
+        record();
+    }
+
+    private void record() {
+        StreamState state = states[ThreadLocalRandom.current().nextInt(states.length)];
+        state.recordStart();
+        state.recordSuccess(42.0, info, 42_000_000L);
+    }
+}
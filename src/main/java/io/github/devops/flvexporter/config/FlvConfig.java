@@ -6,6 +6,7 @@ import org.springframework.stereotype.Component;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 @Component
 @ConfigurationProperties(prefix = "flv")
@@ -13,6 +14,15 @@ public class FlvConfig {
     
     private Map<String, List<String>> urls;
     
+    // 按项目或按流单独配置的检测间隔(毫秒)
+    private Intervals intervals = new Intervals();
+    
+    // 按源站Host单独配置的连接策略，Host包含"."时YAML中需写成 "[edge.example.com]"
+    private Map<String, Origin> origins = new HashMap<>();
+    
+    // /probe 接口的探测模块，按 module 参数选择，未配置时只有 default 模块
+    private Map<String, ProbeModule> modules = new HashMap<>();
+    
     public Map<String, List<String>> getUrls() {
         return urls;
     }
@@ -21,6 +31,39 @@ public class FlvConfig {
         this.urls = urls;
     }
     
+    public Intervals getIntervals() {
+        return intervals;
+    }
+    
+    public void setIntervals(Intervals intervals) {
+        this.intervals = intervals;
+    }
+    
+    public Map<String, Origin> getOrigins() {
+        return origins;
+    }
+    
+    public void setOrigins(Map<String, Origin> origins) {
+        this.origins = origins;
+    }
+    
+    public Map<String, ProbeModule> getModules() {
+        return modules;
+    }
+    
+    public void setModules(Map<String, ProbeModule> modules) {
+        this.modules = modules;
+    }
+    
+    // 解析流的检测间隔：流级配置 > 项目级配置 > 默认间隔
+    public long resolveInterval(FlvUrl flvUrl, long defaultInterval) {
+        Long interval = intervals.getStreams().get(flvUrl.getName());
+        if (interval == null) {
+            interval = intervals.getProjects().get(flvUrl.getProject());
+        }
+        return interval != null && interval > 0 ? interval : defaultInterval;
+    }
+    
     // 获取扁平化的URL列表，包含项目信息
     public List<FlvUrl> getFlatUrls() {
         List<FlvUrl> flatUrls = new ArrayList<>();
@@ -80,6 +123,112 @@ public class FlvConfig {
         }
     }
     
+    public static class Intervals {
+        private Map<String, Long> projects = new HashMap<>();
+        private Map<String, Long> streams = new HashMap<>();
+        
+        public Map<String, Long> getProjects() {
+            return projects;
+        }
+        
+        public void setProjects(Map<String, Long> projects) {
+            this.projects = projects;
+        }
+        
+        public Map<String, Long> getStreams() {
+            return streams;
+        }
+        
+        public void setStreams(Map<String, Long> streams) {
+            this.streams = streams;
+        }
+    }
+    
+    public static class Origin {
+        // 固定解析到这些IP，不走DNS
+        private List<String> addresses = new ArrayList<>();
+        // 该源站连接池的最大空闲连接数和空闲保持时间(毫秒)，未配置时使用全局连接池
+        private Integer maxIdleConnections;
+        private Long keepAlive;
+        // false时只使用HTTP/1.1，用于HTTP/2实现有问题的边缘节点
+        private boolean http2 = true;
+        // 明文HTTP直接使用HTTP/2 (h2c)，需确认源站支持
+        private boolean h2PriorKnowledge;
+        
+        public List<String> getAddresses() {
+            return addresses;
+        }
+        
+        public void setAddresses(List<String> addresses) {
+            this.addresses = addresses;
+        }
+        
+        public Integer getMaxIdleConnections() {
+            return maxIdleConnections;
+        }
+        
+        public void setMaxIdleConnections(Integer maxIdleConnections) {
+            this.maxIdleConnections = maxIdleConnections;
+        }
+        
+        public Long getKeepAlive() {
+            return keepAlive;
+        }
+        
+        public void setKeepAlive(Long keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+        
+        public boolean isHttp2() {
+            return http2;
+        }
+        
+        public void setHttp2(boolean http2) {
+            this.http2 = http2;
+        }
+        
+        public boolean isH2PriorKnowledge() {
+            return h2PriorKnowledge;
+        }
+        
+        public void setH2PriorKnowledge(boolean h2PriorKnowledge) {
+            this.h2PriorKnowledge = h2PriorKnowledge;
+        }
+    }
+    
+    public static class ProbeModule {
+        // 失败后的重试次数，按需探测默认不重试
+        private int retries;
+        // 结果缓存时间(毫秒)，未配置时使用 flv.probe.cache-ttl
+        private Long cacheTtl;
+        // 附加的请求头，例如防盗链需要的Referer或鉴权Token
+        private Map<String, String> headers = new HashMap<>();
+        
+        public int getRetries() {
+            return retries;
+        }
+        
+        public void setRetries(int retries) {
+            this.retries = retries;
+        }
+        
+        public Long getCacheTtl() {
+            return cacheTtl;
+        }
+        
+        public void setCacheTtl(Long cacheTtl) {
+            this.cacheTtl = cacheTtl;
+        }
+        
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+        
+        public void setHeaders(Map<String, String> headers) {
+            this.headers = headers;
+        }
+    }
+    
     public static class FlvUrl {
         private String name;
         private String url;
@@ -2,6 +2,7 @@ package io.github.devops.flvexporter.config;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.autoconfigure.metrics.MeterRegistryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,9 +10,22 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class MetricsConfig {
 
+    // per-stream: 每个流导出独立的指标; aggregate: 只导出项目级汇总和最慢的top-K流
+    @Value("${flv.metrics.mode:per-stream}")
+    private String metricsMode;
+
     @Bean
     public MeterRegistryCustomizer<MeterRegistry> metricsCommonTags() {
         return registry -> {
+            if ("aggregate".equalsIgnoreCase(metricsMode)) {
+                // 汇总模式下去掉高基数的标签，带流名称的指标只保留top-K流的状态和响应时间；
+                // 需要在下面的 acceptNameStartsWith("flv") 之前注册，否则会被直接放行
+                registry.config()
+                        .meterFilter(MeterFilter.ignoreTags("stream_url", "description"))
+                        .meterFilter(MeterFilter.deny(id -> id.getTag("stream_name") != null
+                                && !"flv_stream_status".equals(id.getName())
+                                && !"flv_stream_response_time_ms".equals(id.getName())));
+            }
             // 只保留FLV相关的指标，过滤掉其他所有指标
             registry.config()
                     .meterFilter(MeterFilter.denyNameStartsWith("jvm"))
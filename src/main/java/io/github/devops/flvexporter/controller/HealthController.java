@@ -1,22 +1,24 @@
 package io.github.devops.flvexporter.controller;
 
 import io.github.devops.flvexporter.config.FlvConfig;
+import io.github.devops.flvexporter.service.StreamRegistry;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 @Controller
 public class HealthController {
     
     private final FlvConfig flvConfig;
+    private final StreamRegistry streamRegistry;
     
-    public HealthController(FlvConfig flvConfig) {
+    public HealthController(FlvConfig flvConfig, StreamRegistry streamRegistry) {
         this.flvConfig = flvConfig;
+        this.streamRegistry = streamRegistry;
     }
     
     @GetMapping("/")
@@ -25,14 +27,12 @@ public class HealthController {
         model.addAttribute("version", "1.0.0");
         model.addAttribute("description", "Prometheus exporter for FLV stream monitoring");
         
-        // 统计信息
-        List<FlvConfig.FlvUrl> flatUrls = flvConfig.getFlatUrls();
-        int totalStreams = flatUrls.size();
-        int projectCount = flvConfig.getUrls() != null ? flvConfig.getUrls().size() : 0;
+        // 统计信息，直接读取注册表快照
+        StreamRegistry.Snapshot snapshot = streamRegistry.getSnapshot();
         
-        model.addAttribute("totalStreams", totalStreams);
-        model.addAttribute("projectCount", projectCount);
-        model.addAttribute("projects", flvConfig.getUrls());
+        model.addAttribute("totalStreams", snapshot.size());
+        model.addAttribute("projectCount", snapshot.getProjectCount());
+        model.addAttribute("projects", snapshot.getProjects());
         
         return "index";
     }
@@ -47,7 +47,12 @@ public class HealthController {
         response.put("endpoints", Map.of(
             "metrics", "/actuator/prometheus",
             "health", "/actuator/health",
-            "config", "/config"
+            "config", "/config",
+            "status", "/api/status",
+            "status_stream", "/api/status/stream",
+            "sla", "/api/sla?window=1h",
+            "history", "/api/streams/{name}/history",
+            "probe", "/probe?target=<url>&module=default"
         ));
         return response;
     }
@@ -55,11 +60,14 @@ public class HealthController {
     @GetMapping("/config")
     @ResponseBody
     public Map<String, Object> getConfig() {
+        StreamRegistry.Snapshot snapshot = streamRegistry.getSnapshot();
         Map<String, Object> response = new HashMap<>();
-        response.put("configured_projects", flvConfig.getUrls() != null ? flvConfig.getUrls().size() : 0);
-        response.put("configured_streams", flvConfig.getFlatUrls().size());
+        response.put("configured_projects", snapshot.getProjectCount());
+        response.put("configured_streams", snapshot.size());
         response.put("projects", flvConfig.getUrls());
-        response.put("streams", flvConfig.getFlatUrls());
+        response.put("streams", snapshot.getStreams());
+        response.put("name_collisions", snapshot.getCollisions());
+        response.put("registry_version", snapshot.getVersion());
         return response;
     }
 }
\ No newline at end of file
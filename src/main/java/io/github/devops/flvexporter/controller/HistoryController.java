@@ -0,0 +1,63 @@
+package io.github.devops.flvexporter.controller;
+
+import io.github.devops.flvexporter.service.HistoryService;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.time.Duration;
+import java.util.Map;
+
+@Controller
+public class HistoryController {
+    
+    private final HistoryService historyService;
+    
+    public HistoryController(HistoryService historyService) {
+        this.historyService = historyService;
+    }
+    
+    // 单个流最近的检测记录(从新到旧)和窗口内的可用率
+    @GetMapping("/api/streams/{name}/history")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> streamHistory(@PathVariable("name") String name,
+                                                             @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                             @RequestParam(value = "window", defaultValue = "1h") String window) {
+        Duration duration = parseWindow(window);
+        if (duration == null || limit < 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "参数无效: window=" + window + ", limit=" + limit));
+        }
+        Map<String, Object> history = historyService.getStreamHistory(name, limit, duration);
+        if (history == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "流不存在或未开启历史记录: " + name));
+        }
+        return ResponseEntity.ok(history);
+    }
+    
+    // 窗口内全部流(或指定项目)的可用率和延迟分位数，例如 /api/sla?window=1h
+    @GetMapping("/api/sla")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> sla(@RequestParam(value = "window", defaultValue = "1h") String window,
+                                                   @RequestParam(value = "project", required = false) String project) {
+        Duration duration = parseWindow(window);
+        if (duration == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "参数无效: window=" + window));
+        }
+        return ResponseEntity.ok(historyService.getSla(duration, project));
+    }
+    
+    // 支持 30m、1h、1d 或ISO-8601格式
+    private static Duration parseWindow(String window) {
+        try {
+            Duration duration = DurationStyle.detectAndParse(window);
+            return duration.isNegative() || duration.isZero() ? null : duration;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
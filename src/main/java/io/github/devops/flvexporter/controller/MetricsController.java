@@ -0,0 +1,43 @@
+package io.github.devops.flvexporter.controller;
+
+import io.github.devops.flvexporter.service.PrometheusExpositionCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+@Controller
+public class MetricsController {
+    
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8");
+    
+    private final PrometheusExpositionCache expositionCache;
+    
+    public MetricsController(PrometheusExpositionCache expositionCache) {
+        this.expositionCache = expositionCache;
+    }
+    
+    // 预渲染的Prometheus输出，未开启时返回404，继续使用 /actuator/prometheus
+    @GetMapping("/metrics")
+    @ResponseBody
+    public ResponseEntity<byte[]> metrics(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (!expositionCache.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        PrometheusExpositionCache.Exposition exposition = expositionCache.get();
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return ResponseEntity.ok()
+                    .contentType(PROMETHEUS_TEXT)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .body(exposition.getGzipped());
+        }
+        return ResponseEntity.ok()
+                .contentType(PROMETHEUS_TEXT)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .body(exposition.getText());
+    }
+}
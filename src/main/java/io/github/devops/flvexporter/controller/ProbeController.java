@@ -0,0 +1,47 @@
+package io.github.devops.flvexporter.controller;
+
+import io.github.devops.flvexporter.service.ProbeService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.concurrent.TimeoutException;
+
+@Controller
+public class ProbeController {
+    
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8");
+    
+    private final ProbeService probeService;
+    
+    public ProbeController(ProbeService probeService) {
+        this.probeService = probeService;
+    }
+    
+    // 按需探测任意FLV地址，用法和blackbox_exporter相同: /probe?target=<url>&module=<name>
+    @GetMapping("/probe")
+    @ResponseBody
+    public ResponseEntity<String> probe(@RequestParam(value = "target", required = false) String target,
+                                        @RequestParam(value = "module", defaultValue = "default") String module) {
+        if (!probeService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        String error = probeService.validate(target, module);
+        if (error != null) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(error + "\n");
+        }
+        try {
+            return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(probeService.probe(target, module));
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).contentType(MediaType.TEXT_PLAIN)
+                    .body("等待探测结果超时\n");
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).contentType(MediaType.TEXT_PLAIN)
+                    .body(e.getMessage() + "\n");
+        }
+    }
+}
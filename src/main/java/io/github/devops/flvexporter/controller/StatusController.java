@@ -0,0 +1,40 @@
+package io.github.devops.flvexporter.controller;
+
+import io.github.devops.flvexporter.service.StatusBroadcaster;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Controller
+public class StatusController {
+    
+    private final StatusBroadcaster statusBroadcaster;
+    
+    public StatusController(StatusBroadcaster statusBroadcaster) {
+        this.statusBroadcaster = statusBroadcaster;
+    }
+    
+    // 所有流的当前状态，streams 中每一行按 fields 的顺序排列
+    @GetMapping("/api/status")
+    @ResponseBody
+    public ResponseEntity<String> status() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(statusBroadcaster.getSnapshotJson());
+    }
+    
+    // SSE推送：连接后先收到 snapshot 事件，之后是 delta 事件；流集合变化时收到 reset 事件，需要重新拉取 /api/status
+    @GetMapping(value = "/api/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public ResponseEntity<SseEmitter> statusStream() {
+        SseEmitter emitter = statusBroadcaster.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+}
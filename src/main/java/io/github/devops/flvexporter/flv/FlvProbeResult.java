@@ -0,0 +1,259 @@
+package io.github.devops.flvexporter.flv;
+
+public class FlvProbeResult {
+
+    private int httpStatus;
+    private boolean healthy;
+    private String error;
+
+    // FLV头信息
+    private boolean headerValid;
+    private boolean audioFlag;
+    private boolean videoFlag;
+
+    // 解析进度
+    private long bytesRead;
+    private int tagCount;
+    // 从请求开始到读到首个合法Tag头的耗时，0表示没有读到
+    private long firstTagNanos;
+
+    // 首个视频关键帧
+    private boolean keyframeSeen;
+    private long firstKeyframeNanos;
+    // 同时拿到关键帧和元数据时的 System.nanoTime()，0表示没有同时拿到
+    private long validatedAtNanos;
+    private int firstKeyframeTimestamp;
+
+    // 内容指纹：前几个视频Tag负载的哈希和参与计算的Tag数，以及最后一个Tag的时间戳
+    private long contentHash;
+    private int fingerprintTags;
+    private int lastTimestamp = -1;
+
+    // GOP和时间戳连续性分析，未开启时为null
+    private FlvTimingAnalysis timing;
+
+    // onMetaData 声明的参数
+    private boolean metadataSeen;
+    private double width;
+    private double height;
+    private double framerate;
+    private double videoDataRate;
+    private double audioDataRate;
+    private int videoCodecId = -1;
+    private int audioCodecId = -1;
+
+    // 头部合法且至少解析出一个完整Tag才认为是有效的FLV流
+    public boolean isValid() {
+        return headerValid && error == null && tagCount > 0;
+    }
+
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+    public void setHttpStatus(int httpStatus) {
+        this.httpStatus = httpStatus;
+    }
+
+    // 最终判定结果，由调用方结合HTTP状态码和解析结果给出
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public boolean isHeaderValid() {
+        return headerValid;
+    }
+
+    void setHeaderValid(boolean headerValid) {
+        this.headerValid = headerValid;
+    }
+
+    public boolean hasAudioFlag() {
+        return audioFlag;
+    }
+
+    void setAudioFlag(boolean audioFlag) {
+        this.audioFlag = audioFlag;
+    }
+
+    public boolean hasVideoFlag() {
+        return videoFlag;
+    }
+
+    void setVideoFlag(boolean videoFlag) {
+        this.videoFlag = videoFlag;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    public int getTagCount() {
+        return tagCount;
+    }
+
+    void incrementTagCount() {
+        this.tagCount++;
+    }
+
+    public long getFirstTagNanos() {
+        return firstTagNanos;
+    }
+
+    void markFirstTag(long elapsedNanos) {
+        if (firstTagNanos == 0) {
+            this.firstTagNanos = Math.max(1, elapsedNanos);
+        }
+    }
+
+    public boolean isKeyframeSeen() {
+        return keyframeSeen;
+    }
+
+    public double getFirstKeyframeMs() {
+        return keyframeSeen ? firstKeyframeNanos / 1_000_000.0 : 0.0;
+    }
+
+    public int getFirstKeyframeTimestamp() {
+        return firstKeyframeTimestamp;
+    }
+
+    void markKeyframe(long elapsedNanos, int timestamp) {
+        this.keyframeSeen = true;
+        this.firstKeyframeNanos = elapsedNanos;
+        this.firstKeyframeTimestamp = timestamp;
+    }
+
+    // 之后为内容指纹或时间戳分析继续读取的时间不计入响应时间
+    public long getValidatedAtNanos() {
+        return validatedAtNanos;
+    }
+
+    void markValidated(long nanoTime) {
+        if (validatedAtNanos == 0) {
+            this.validatedAtNanos = nanoTime;
+        }
+    }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public int getFingerprintTags() {
+        return fingerprintTags;
+    }
+
+    void addFingerprintTag(long hash) {
+        this.contentHash = hash;
+        this.fingerprintTags++;
+    }
+
+    // 最后一个解析到的Tag的时间戳(毫秒)，-1表示没有读到Tag
+    public int getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    void setLastTimestamp(int lastTimestamp) {
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public FlvTimingAnalysis getTiming() {
+        return timing;
+    }
+
+    void setTiming(FlvTimingAnalysis timing) {
+        this.timing = timing;
+    }
+
+    public boolean isMetadataSeen() {
+        return metadataSeen;
+    }
+
+    void setMetadataSeen(boolean metadataSeen) {
+        this.metadataSeen = metadataSeen;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    void setWidth(double width) {
+        this.width = width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+
+    void setHeight(double height) {
+        this.height = height;
+    }
+
+    public double getFramerate() {
+        return framerate;
+    }
+
+    void setFramerate(double framerate) {
+        this.framerate = framerate;
+    }
+
+    public double getVideoDataRate() {
+        return videoDataRate;
+    }
+
+    void setVideoDataRate(double videoDataRate) {
+        this.videoDataRate = videoDataRate;
+    }
+
+    public double getAudioDataRate() {
+        return audioDataRate;
+    }
+
+    void setAudioDataRate(double audioDataRate) {
+        this.audioDataRate = audioDataRate;
+    }
+
+    // onMetaData 中声明的总码率 (kbps)
+    public double getBitrateKbps() {
+        return videoDataRate + audioDataRate;
+    }
+
+    public int getVideoCodecId() {
+        return videoCodecId;
+    }
+
+    void setVideoCodecId(int videoCodecId) {
+        this.videoCodecId = videoCodecId;
+    }
+
+    public int getAudioCodecId() {
+        return audioCodecId;
+    }
+
+    void setAudioCodecId(int audioCodecId) {
+        this.audioCodecId = audioCodecId;
+    }
+
+    @Override
+    public String toString() {
+        return "FlvProbeResult{status=" + httpStatus + ", healthy=" + healthy + ", valid=" + isValid() + ", tags=" + tagCount
+                + ", bytes=" + bytesRead + ", keyframe=" + keyframeSeen + ", metadata=" + metadataSeen
+                + (error != null ? ", error=" + error : "") + "}";
+    }
+}
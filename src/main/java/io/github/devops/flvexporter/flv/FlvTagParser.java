@@ -0,0 +1,498 @@
+package io.github.devops.flvexporter.flv;
+
+import okio.BufferedSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// 增量式FLV解析器：直接从 BufferedSource 读取，只校验头部和Tag结构，
+// 看到首个视频关键帧和 onMetaData 后立即停止，不缓存Tag内容
+public class FlvTagParser {
+
+    public static final int TAG_AUDIO = 8;
+    public static final int TAG_VIDEO = 9;
+    public static final int TAG_SCRIPT = 18;
+
+    private static final int FLV_HEADER_SIZE = 9;
+    private static final int TAG_HEADER_SIZE = 11;
+    private static final int MAX_AMF_DEPTH = 8;
+    // DataOffset上限：标准FLV头固定为9，超过该值的头部扩展数据跳过不解析，过大的值视为非法
+    private static final long MAX_DATA_OFFSET = 64 * 1024;
+
+    private static final int CODEC_AVC = 7;
+    private static final int CODEC_HEVC = 12;
+    private static final int SOUND_AAC = 10;
+
+    // 内容指纹只取每个视频Tag负载的前若干字节，避免超出小读取预算
+    private static final int FINGERPRINT_BYTES = 256;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final byte[] ON_METADATA = ascii("onMetaData");
+    private static final byte[] KEY_WIDTH = ascii("width");
+    private static final byte[] KEY_HEIGHT = ascii("height");
+    private static final byte[] KEY_FRAMERATE = ascii("framerate");
+    private static final byte[] KEY_VIDEO_DATA_RATE = ascii("videodatarate");
+    private static final byte[] KEY_AUDIO_DATA_RATE = ascii("audiodatarate");
+    private static final byte[] KEY_VIDEO_CODEC_ID = ascii("videocodecid");
+    private static final byte[] KEY_AUDIO_CODEC_ID = ascii("audiocodecid");
+
+    // AMF越界时复用的异常实例，避免在热路径上构造异常栈
+    private static final ScriptLimitException SCRIPT_LIMIT = new ScriptLimitException();
+
+    // 固定大小的临时缓冲区，只用于比较 onMetaData 的键名
+    private final byte[] scratch = new byte[32];
+
+    // 计算内容指纹的视频Tag数量，0表示不计算；开启后拿到关键帧和元数据也要读够这么多视频Tag才停止
+    private final int fingerprintTags;
+    private byte[] fingerprintBuffer;
+
+    // 开启时间戳分析后一直读到预算用完，尽量覆盖多个GOP
+    private final boolean analyseTiming;
+    private final long jumpThresholdMs;
+
+    private BufferedSource source;
+    private long bytesRead;
+    private long scriptRemaining;
+    // 当前Tag是否是编码器序列头，序列头在每次连接中都相同，不计入指纹和时间戳分析
+    private boolean sequenceHeader;
+    private boolean keyframe;
+
+    public FlvTagParser() {
+        this(0);
+    }
+
+    public FlvTagParser(int fingerprintTags) {
+        this(fingerprintTags, false, 0);
+    }
+
+    public FlvTagParser(int fingerprintTags, boolean analyseTiming, long jumpThresholdMs) {
+        this.fingerprintTags = Math.max(0, fingerprintTags);
+        this.analyseTiming = analyseTiming;
+        this.jumpThresholdMs = jumpThresholdMs;
+    }
+
+    public FlvProbeResult parse(BufferedSource source, long maxBytes, long startNanos) {
+        return parse(source, maxBytes, startNanos, new FlvProbeResult());
+    }
+
+    public FlvProbeResult parse(BufferedSource source, long maxBytes, long startNanos, FlvProbeResult result) {
+        this.source = source;
+        this.bytesRead = 0;
+        try {
+            if (!readHeader(result, maxBytes)) {
+                return result;
+            }
+            readTags(result, maxBytes, startNanos);
+        } catch (EOFException e) {
+            // Tag被截断，之前已解析的Tag仍然有效
+            if (result.getTagCount() == 0 && result.getError() == null) {
+                result.setError("FLV数据被截断");
+            }
+        } catch (IOException e) {
+            result.setError(e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            result.setBytesRead(bytesRead);
+            this.source = null;
+        }
+        return result;
+    }
+
+    private boolean readHeader(FlvProbeResult result, long maxBytes) throws IOException {
+        if (!source.request(FLV_HEADER_SIZE)) {
+            result.setError("响应体过短，不足FLV头长度");
+            return false;
+        }
+        if (u8() != 'F' || u8() != 'L' || u8() != 'V') {
+            result.setError("FLV签名错误");
+            return false;
+        }
+        u8(); // version
+        int flags = u8();
+        if ((flags & 0xFA) != 0) {
+            result.setError("FLV头保留位非0: " + flags);
+            return false;
+        }
+        result.setAudioFlag((flags & 0x04) != 0);
+        result.setVideoFlag((flags & 0x01) != 0);
+
+        long dataOffset = u32();
+        // DataOffset是未校验的32位值，不限制时一次检测可能跳过数GB数据
+        if (dataOffset < FLV_HEADER_SIZE || dataOffset > MAX_DATA_OFFSET || dataOffset + 4 > maxBytes) {
+            result.setError("FLV头DataOffset非法: " + dataOffset);
+            return false;
+        }
+        skip(dataOffset - FLV_HEADER_SIZE);
+
+        if (u32() != 0) {
+            result.setError("PreviousTagSize0非0");
+            return false;
+        }
+        result.setHeaderValid(true);
+        return true;
+    }
+
+    private void readTags(FlvProbeResult result, long maxBytes, long startNanos) throws IOException {
+        FlvTimingAnalysis timing = null;
+        if (analyseTiming) {
+            timing = new FlvTimingAnalysis(jumpThresholdMs);
+            result.setTiming(timing);
+        }
+        while (bytesRead + TAG_HEADER_SIZE <= maxBytes && source.request(TAG_HEADER_SIZE)) {
+            int tagType = u8() & 0x1F; // 忽略Filter位
+            int dataSize = u24();
+            int timestamp = u24() | (u8() << 24);
+            int streamId = u24();
+
+            if (tagType != TAG_AUDIO && tagType != TAG_VIDEO && tagType != TAG_SCRIPT) {
+                result.setError("未知的Tag类型: " + tagType);
+                return;
+            }
+            if (streamId != 0) {
+                result.setError("Tag StreamID非0: " + streamId);
+                return;
+            }
+            result.markFirstTag(System.nanoTime() - startNanos);
+            result.setLastTimestamp(timestamp);
+
+            long remaining = dataSize;
+            if (tagType == TAG_VIDEO && remaining > 0) {
+                remaining -= readVideoTagHead(result, remaining, timestamp, startNanos);
+                long hashBytes = Math.min(Math.min(remaining, FINGERPRINT_BYTES), maxBytes - bytesRead);
+                if (!sequenceHeader && result.getFingerprintTags() < fingerprintTags && hashBytes > 0) {
+                    remaining -= hashVideoPayload(result, (int) hashBytes);
+                }
+            } else if (tagType == TAG_AUDIO && remaining > 0) {
+                int soundFormat = (u8() >> 4) & 0x0F;
+                remaining--;
+                if (result.getAudioCodecId() < 0) {
+                    result.setAudioCodecId(soundFormat);
+                }
+                sequenceHeader = false;
+                if (timing != null && soundFormat == SOUND_AAC && remaining > 0) {
+                    // AACPacketType: 0为AudioSpecificConfig
+                    sequenceHeader = u8() == 0;
+                    remaining--;
+                }
+            } else if (tagType == TAG_SCRIPT && !result.isMetadataSeen()) {
+                remaining = readScriptTag(result, remaining, maxBytes - bytesRead);
+            }
+
+            if (timing != null && dataSize > 0 && !sequenceHeader) {
+                long ts = timestamp & 0xFFFFFFFFL;
+                if (tagType == TAG_VIDEO) {
+                    timing.onVideo(ts, keyframe);
+                } else if (tagType == TAG_AUDIO) {
+                    timing.onAudio(ts);
+                }
+            }
+
+            if (result.getValidatedAtNanos() == 0 && result.isKeyframeSeen() && result.isMetadataSeen()) {
+                result.markValidated(System.nanoTime());
+            }
+            if (timing == null && result.isKeyframeSeen() && result.isMetadataSeen() && result.getFingerprintTags() >= fingerprintTags) {
+                // 已拿到需要的信息，当前Tag头已校验，不再读取剩余数据
+                result.incrementTagCount();
+                return;
+            }
+            if (bytesRead + remaining + 4 > maxBytes) {
+                // 超出读取预算，停止解析
+                return;
+            }
+            skip(remaining);
+
+            long previousTagSize = u32();
+            if (previousTagSize != TAG_HEADER_SIZE + dataSize) {
+                result.setError("PreviousTagSize不匹配: " + previousTagSize + " != " + (TAG_HEADER_SIZE + dataSize));
+                return;
+            }
+            result.incrementTagCount();
+        }
+    }
+
+    // 读取视频Tag的前几个字节，返回已消费的字节数
+    private int readVideoTagHead(FlvProbeResult result, long dataSize, int timestamp, long startNanos) throws IOException {
+        int head = u8();
+        int consumed = 1;
+        sequenceHeader = false;
+        if ((head & 0x80) != 0) {
+            // Enhanced RTMP: 高位为IsExHeader，低4位为PacketType，0为SequenceStart
+            int frameType = (head >> 4) & 0x07;
+            int packetType = head & 0x0F;
+            keyframe = frameType == 1 && packetType != 0;
+            sequenceHeader = packetType == 0;
+        } else {
+            int frameType = (head >> 4) & 0x0F;
+            int codecId = head & 0x0F;
+            if (result.getVideoCodecId() < 0) {
+                result.setVideoCodecId(codecId);
+            }
+            if ((codecId == CODEC_AVC || codecId == CODEC_HEVC) && dataSize > 1) {
+                // AVCPacketType: 0为序列头，不是真正的关键帧
+                int packetType = u8();
+                consumed++;
+                keyframe = frameType == 1 && packetType == 1;
+                sequenceHeader = packetType == 0;
+            } else {
+                keyframe = frameType == 1;
+            }
+        }
+        if (keyframe && !result.isKeyframeSeen()) {
+            result.markKeyframe(System.nanoTime() - startNanos, timestamp);
+        }
+        return consumed;
+    }
+
+    // 把视频Tag负载的前 length 字节累加到FNV-1a指纹中，返回已消费的字节数
+    private int hashVideoPayload(FlvProbeResult result, int length) throws IOException {
+        if (fingerprintBuffer == null) {
+            fingerprintBuffer = new byte[FINGERPRINT_BYTES];
+        }
+        for (int offset = 0; offset < length; ) {
+            int n = source.read(fingerprintBuffer, offset, length - offset);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            offset += n;
+        }
+        bytesRead += length;
+        long hash = result.getFingerprintTags() == 0 ? FNV_OFFSET : result.getContentHash();
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (fingerprintBuffer[i] & 0xFF)) * FNV_PRIME;
+        }
+        result.addFingerprintTag(hash);
+        return length;
+    }
+
+    // 解析 onMetaData，返回Tag中剩余未读取的字节数；AMF读取同时受Tag长度和剩余读取预算约束，
+    // 超大的元数据(如很长的AMF字符串)只读到预算为止，之后由预算检查停止解析
+    private long readScriptTag(FlvProbeResult result, long dataSize, long budget) throws IOException {
+        long limit = Math.max(0, Math.min(dataSize, budget));
+        scriptRemaining = limit;
+        try {
+            if (scriptU8() == 2 && scriptKeyEquals(scriptU16(), ON_METADATA)) {
+                int valueType = scriptU8();
+                if (valueType == 8) {
+                    scriptU32(); // ECMA数组的近似长度，不可信，以结束标记为准
+                    readMetadataProperties(result);
+                } else if (valueType == 3) {
+                    readMetadataProperties(result);
+                }
+                result.setMetadataSeen(true);
+            }
+        } catch (ScriptLimitException e) {
+            // 脚本数据越界、超出读取预算或格式不支持，只放弃元数据，不影响流的判定
+        }
+        return dataSize - (limit - scriptRemaining);
+    }
+
+    private void readMetadataProperties(FlvProbeResult result) throws IOException, ScriptLimitException {
+        while (true) {
+            int keyLength = scriptU16();
+            if (keyLength == 0) {
+                scriptU8(); // 0x09 对象结束标记
+                return;
+            }
+            byte[] key = null;
+            if (keyLength <= scratch.length) {
+                scriptRead(scratch, keyLength);
+                key = matchMetadataKey(keyLength);
+            } else {
+                scriptSkip(keyLength);
+            }
+
+            int valueType = scriptU8();
+            if (valueType == 0 && key != null) {
+                applyMetadata(result, key, Double.longBitsToDouble(scriptU64()));
+            } else {
+                skipAmfValue(valueType, 0);
+            }
+        }
+    }
+
+    private byte[] matchMetadataKey(int length) {
+        if (keyEquals(length, KEY_WIDTH)) return KEY_WIDTH;
+        if (keyEquals(length, KEY_HEIGHT)) return KEY_HEIGHT;
+        if (keyEquals(length, KEY_FRAMERATE)) return KEY_FRAMERATE;
+        if (keyEquals(length, KEY_VIDEO_DATA_RATE)) return KEY_VIDEO_DATA_RATE;
+        if (keyEquals(length, KEY_AUDIO_DATA_RATE)) return KEY_AUDIO_DATA_RATE;
+        if (keyEquals(length, KEY_VIDEO_CODEC_ID)) return KEY_VIDEO_CODEC_ID;
+        if (keyEquals(length, KEY_AUDIO_CODEC_ID)) return KEY_AUDIO_CODEC_ID;
+        return null;
+    }
+
+    private void applyMetadata(FlvProbeResult result, byte[] key, double value) {
+        if (key == KEY_WIDTH) {
+            result.setWidth(value);
+        } else if (key == KEY_HEIGHT) {
+            result.setHeight(value);
+        } else if (key == KEY_FRAMERATE) {
+            result.setFramerate(value);
+        } else if (key == KEY_VIDEO_DATA_RATE) {
+            result.setVideoDataRate(value);
+        } else if (key == KEY_AUDIO_DATA_RATE) {
+            result.setAudioDataRate(value);
+        } else if (key == KEY_VIDEO_CODEC_ID) {
+            result.setVideoCodecId((int) value);
+        } else if (key == KEY_AUDIO_CODEC_ID) {
+            result.setAudioCodecId((int) value);
+        }
+    }
+
+    private void skipAmfValue(int type, int depth) throws IOException, ScriptLimitException {
+        if (depth > MAX_AMF_DEPTH) {
+            throw SCRIPT_LIMIT;
+        }
+        switch (type) {
+            case 0: // number
+                scriptSkip(8);
+                break;
+            case 1: // boolean
+                scriptSkip(1);
+                break;
+            case 2: // string
+                scriptSkip(scriptU16());
+                break;
+            case 3: // object
+                skipAmfProperties(depth);
+                break;
+            case 5: // null
+            case 6: // undefined
+                break;
+            case 7: // reference
+                scriptSkip(2);
+                break;
+            case 8: // ECMA array
+                scriptSkip(4);
+                skipAmfProperties(depth);
+                break;
+            case 10: // strict array
+                long count = scriptU32();
+                for (long i = 0; i < count; i++) {
+                    skipAmfValue(scriptU8(), depth + 1);
+                }
+                break;
+            case 11: // date
+                scriptSkip(10);
+                break;
+            case 12: // long string
+                scriptSkip(scriptU32());
+                break;
+            default:
+                throw SCRIPT_LIMIT;
+        }
+    }
+
+    private void skipAmfProperties(int depth) throws IOException, ScriptLimitException {
+        while (true) {
+            int keyLength = scriptU16();
+            if (keyLength == 0) {
+                scriptU8();
+                return;
+            }
+            scriptSkip(keyLength);
+            skipAmfValue(scriptU8(), depth + 1);
+        }
+    }
+
+    private boolean scriptKeyEquals(int length, byte[] expected) throws IOException, ScriptLimitException {
+        if (length > scratch.length) {
+            scriptSkip(length);
+            return false;
+        }
+        scriptRead(scratch, length);
+        return keyEquals(length, expected);
+    }
+
+    private boolean keyEquals(int length, byte[] expected) {
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (scratch[i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ---- 受Tag长度约束的读取 ----
+
+    private void scriptReserve(long n) throws ScriptLimitException {
+        if (n > scriptRemaining) {
+            throw SCRIPT_LIMIT;
+        }
+        scriptRemaining -= n;
+    }
+
+    private int scriptU8() throws IOException, ScriptLimitException {
+        scriptReserve(1);
+        return u8();
+    }
+
+    private int scriptU16() throws IOException, ScriptLimitException {
+        scriptReserve(2);
+        bytesRead += 2;
+        return source.readShort() & 0xFFFF;
+    }
+
+    private long scriptU32() throws IOException, ScriptLimitException {
+        scriptReserve(4);
+        return u32();
+    }
+
+    private long scriptU64() throws IOException, ScriptLimitException {
+        scriptReserve(8);
+        bytesRead += 8;
+        return source.readLong();
+    }
+
+    private void scriptRead(byte[] target, int length) throws IOException, ScriptLimitException {
+        scriptReserve(length);
+        for (int i = 0; i < length; i++) {
+            target[i] = source.readByte();
+        }
+        bytesRead += length;
+    }
+
+    private void scriptSkip(long n) throws IOException, ScriptLimitException {
+        scriptReserve(n);
+        skip(n);
+    }
+
+    // ---- 基础读取，统计已消费字节数 ----
+
+    private int u8() throws IOException {
+        bytesRead++;
+        return source.readByte() & 0xFF;
+    }
+
+    private int u24() throws IOException {
+        return (u8() << 16) | (u8() << 8) | u8();
+    }
+
+    private long u32() throws IOException {
+        bytesRead += 4;
+        return source.readInt() & 0xFFFFFFFFL;
+    }
+
+    private void skip(long n) throws IOException {
+        if (n > 0) {
+            source.skip(n);
+            bytesRead += n;
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class ScriptLimitException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        ScriptLimitException() {
+            super(null, null, false, false);
+        }
+    }
+}
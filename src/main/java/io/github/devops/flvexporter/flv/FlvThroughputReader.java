@@ -0,0 +1,136 @@
+package io.github.devops.flvexporter.flv;
+
+import okio.BufferedSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+// 持续读取FLV流一段时间：只解析Tag头拿到时间戳，Tag内容读入复用的缓冲区后直接丢弃，
+// 统计下载速率、时间戳推进速度，以及单次等待数据超过阈值的卡顿
+public class FlvThroughputReader {
+
+    // 读取前申请带宽额度，可能阻塞
+    public interface Throttle {
+        void acquire(long bytes) throws InterruptedException;
+    }
+
+    private static final int FLV_HEADER_SIZE = 9;
+    private static final int TAG_HEADER_SIZE = 11;
+
+    private final byte[] discard;
+    private final long stallThresholdNanos;
+    private final Throttle throttle;
+
+    private BufferedSource source;
+    private FlvThroughputResult result;
+
+    public FlvThroughputReader(int bufferSize, long stallThresholdMs, Throttle throttle) {
+        this.discard = new byte[Math.max(1024, bufferSize)];
+        this.stallThresholdNanos = stallThresholdMs * 1_000_000L;
+        this.throttle = throttle;
+    }
+
+    public FlvThroughputResult read(BufferedSource source, long windowMs) {
+        this.source = source;
+        this.result = new FlvThroughputResult();
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + windowMs * 1_000_000L;
+        try {
+            if (!readHeader()) {
+                return result;
+            }
+            while (System.nanoTime() < deadline && await(TAG_HEADER_SIZE)) {
+                int tagType = source.readByte() & 0x1F;
+                int dataSize = u24();
+                long timestamp = (u24() | ((source.readByte() & 0xFF) << 24)) & 0xFFFFFFFFL;
+                u24(); // streamId
+                consumed(TAG_HEADER_SIZE);
+
+                if (tagType == FlvTagParser.TAG_AUDIO || tagType == FlvTagParser.TAG_VIDEO) {
+                    result.onMediaTag(timestamp, System.nanoTime() - startNanos);
+                } else if (tagType != FlvTagParser.TAG_SCRIPT) {
+                    result.setError("未知的Tag类型: " + tagType);
+                    return result;
+                }
+                // Tag内容和 PreviousTagSize 一起丢弃
+                discard(dataSize + 4L);
+                result.incrementTagCount();
+            }
+            if (System.nanoTime() < deadline) {
+                result.setError("观测窗口内连接被关闭");
+            }
+        } catch (EOFException e) {
+            result.setError("观测窗口内连接被关闭");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.setError("持续读取被中断");
+        } catch (IOException e) {
+            result.setError(e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            result.setDurationNanos(System.nanoTime() - startNanos);
+            this.source = null;
+        }
+        return result;
+    }
+
+    private boolean readHeader() throws IOException, InterruptedException {
+        if (!await(FLV_HEADER_SIZE)) {
+            result.setError("响应体过短，不足FLV头长度");
+            return false;
+        }
+        if (source.readByte() != 'F' || source.readByte() != 'L' || source.readByte() != 'V') {
+            result.setError("FLV签名错误");
+            return false;
+        }
+        source.readByte(); // version
+        source.readByte(); // flags
+        long dataOffset = source.readInt() & 0xFFFFFFFFL;
+        consumed(FLV_HEADER_SIZE);
+        if (dataOffset < FLV_HEADER_SIZE) {
+            result.setError("FLV头DataOffset非法: " + dataOffset);
+            return false;
+        }
+        // 扩展头和 PreviousTagSize0
+        discard(dataOffset - FLV_HEADER_SIZE + 4);
+        return true;
+    }
+
+    // 等待缓冲区中至少有 n 个字节，单次等待超过阈值记为一次卡顿
+    private boolean await(long n) throws IOException {
+        long waitStart = System.nanoTime();
+        boolean available = source.request(n);
+        observeWait(waitStart);
+        return available;
+    }
+
+    private void discard(long n) throws IOException, InterruptedException {
+        while (n > 0) {
+            long waitStart = System.nanoTime();
+            int read = source.read(discard, 0, (int) Math.min(n, discard.length));
+            observeWait(waitStart);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            n -= read;
+            consumed(read);
+        }
+    }
+
+    private void observeWait(long waitStart) {
+        long waited = System.nanoTime() - waitStart;
+        if (waited >= stallThresholdNanos) {
+            result.recordStall(waited);
+        }
+    }
+
+    private void consumed(long bytes) throws InterruptedException {
+        result.addBytesRead(bytes);
+        if (throttle != null) {
+            throttle.acquire(bytes);
+        }
+    }
+
+    private int u24() throws IOException {
+        return ((source.readByte() & 0xFF) << 16) | ((source.readByte() & 0xFF) << 8) | (source.readByte() & 0xFF);
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.devops.flvexporter.flv;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// 持续读取探测的结果：下载速率、媒体时间戳推进速度和卡顿情况
+public class FlvThroughputResult {
+
+    // 单次探测最多保留的卡顿记录数，超出的只计数
+    private static final int MAX_STALL_SAMPLES = 64;
+
+    private String error;
+    private long bytesRead;
+    private long durationNanos;
+    private int tagCount;
+
+    // 首个音视频Tag到达的时间和时间戳
+    private boolean mediaSeen;
+    private long firstMediaNanos;
+    private long firstTimestamp;
+    private long lastTimestamp;
+
+    private int stallCount;
+    private long stallTotalNanos;
+    private long[] stallNanos = new long[8];
+
+    public boolean isValid() {
+        return error == null && mediaSeen;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    void setError(String error) {
+        this.error = error;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    void addBytesRead(long bytes) {
+        this.bytesRead += bytes;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    void setDurationNanos(long durationNanos) {
+        this.durationNanos = durationNanos;
+    }
+
+    public int getTagCount() {
+        return tagCount;
+    }
+
+    void incrementTagCount() {
+        this.tagCount++;
+    }
+
+    void onMediaTag(long timestamp, long arrivalNanos) {
+        if (!mediaSeen) {
+            mediaSeen = true;
+            firstMediaNanos = arrivalNanos;
+            firstTimestamp = timestamp;
+            lastTimestamp = timestamp;
+        } else if (timestamp > lastTimestamp) {
+            lastTimestamp = timestamp;
+        }
+    }
+
+    void recordStall(long nanos) {
+        if (stallCount < MAX_STALL_SAMPLES) {
+            if (stallCount == stallNanos.length) {
+                stallNanos = Arrays.copyOf(stallNanos, Math.min(stallNanos.length * 2, MAX_STALL_SAMPLES));
+            }
+            stallNanos[stallCount] = nanos;
+        }
+        stallCount++;
+        stallTotalNanos += nanos;
+    }
+
+    // 整个观测窗口的平均下载速率
+    public double getDownloadRateKbps() {
+        if (durationNanos <= 0) {
+            return 0.0;
+        }
+        return bytesRead * 8.0 / 1000.0 / (durationNanos / 1_000_000_000.0);
+    }
+
+    // 媒体时间戳推进量 / 实际经过时间，持续低于1说明源站推流或下发跟不上实时播放
+    public double getRealtimeRatio() {
+        if (!mediaSeen) {
+            return 0.0;
+        }
+        long wallMs = TimeUnit.NANOSECONDS.toMillis(durationNanos - firstMediaNanos);
+        if (wallMs <= 0) {
+            return 0.0;
+        }
+        return (double) (lastTimestamp - firstTimestamp) / wallMs;
+    }
+
+    public boolean isMediaSeen() {
+        return mediaSeen;
+    }
+
+    public long getMediaProgressMs() {
+        return mediaSeen ? lastTimestamp - firstTimestamp : 0;
+    }
+
+    public int getStallCount() {
+        return stallCount;
+    }
+
+    public long getStallTotalNanos() {
+        return stallTotalNanos;
+    }
+
+    // 已记录的单次卡顿时长，最多 MAX_STALL_SAMPLES 个
+    public int getStallSampleCount() {
+        return Math.min(stallCount, MAX_STALL_SAMPLES);
+    }
+
+    public long getStallNanos(int index) {
+        return stallNanos[index];
+    }
+
+    @Override
+    public String toString() {
+        return "FlvThroughputResult{bytes=" + bytesRead + ", durationMs=" + TimeUnit.NANOSECONDS.toMillis(durationNanos)
+                + ", tags=" + tagCount + ", rateKbps=" + String.format("%.1f", getDownloadRateKbps())
+                + ", realtimeRatio=" + String.format("%.3f", getRealtimeRatio())
+                + ", stalls=" + stallCount + ", stallMs=" + TimeUnit.NANOSECONDS.toMillis(stallTotalNanos)
+                + (error != null ? ", error=" + error : "") + "}";
+    }
+}
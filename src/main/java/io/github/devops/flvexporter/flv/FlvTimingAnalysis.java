@@ -0,0 +1,143 @@
+package io.github.devops.flvexporter.flv;
+
+// 单次探测内的GOP和时间戳连续性分析：由 FlvTagParser 逐个Tag调用，只保存几个计数和运行统计，不缓存Tag；
+// 序列头和脚本Tag不参与分析。FLV的Tag时间戳为解码时间戳，同一轨道内应单调递增
+public class FlvTimingAnalysis {
+
+    private final long jumpThresholdMs;
+
+    // 相邻关键帧的间隔和相邻视频帧的间隔(毫秒)，跳变或回退处不计入
+    private final RunningStats gopMs = new RunningStats();
+    private final RunningStats frameIntervalMs = new RunningStats();
+
+    private long lastVideoTs = -1;
+    private long lastKeyframeTs = -1;
+    private long lastAudioTs = -1;
+    private int videoFrames;
+    private int audioFrames;
+
+    // 同一轨道内时间戳向后跳过阈值、或者倒退的次数
+    private int jumps;
+    private int rollbacks;
+
+    // 最近的视频时间戳减去最近的音频时间戳，以及分析期间的最大绝对值
+    private long driftMs;
+    private long maxDriftMs;
+
+    public FlvTimingAnalysis(long jumpThresholdMs) {
+        this.jumpThresholdMs = jumpThresholdMs;
+    }
+
+    void onVideo(long timestamp, boolean keyframe) {
+        videoFrames++;
+        if (lastVideoTs >= 0) {
+            long delta = timestamp - lastVideoTs;
+            if (isContinuous(delta)) {
+                frameIntervalMs.add(delta);
+            } else {
+                // 不连续时从当前帧重新开始计算GOP
+                lastKeyframeTs = -1;
+            }
+        }
+        lastVideoTs = timestamp;
+        if (keyframe) {
+            if (lastKeyframeTs >= 0 && timestamp > lastKeyframeTs) {
+                gopMs.add(timestamp - lastKeyframeTs);
+            }
+            lastKeyframeTs = timestamp;
+        }
+        updateDrift();
+    }
+
+    void onAudio(long timestamp) {
+        audioFrames++;
+        if (lastAudioTs >= 0) {
+            isContinuous(timestamp - lastAudioTs);
+        }
+        lastAudioTs = timestamp;
+        updateDrift();
+    }
+
+    private boolean isContinuous(long delta) {
+        if (delta < 0) {
+            rollbacks++;
+            return false;
+        }
+        if (delta > jumpThresholdMs) {
+            jumps++;
+            return false;
+        }
+        return true;
+    }
+
+    private void updateDrift() {
+        if (lastVideoTs >= 0 && lastAudioTs >= 0) {
+            driftMs = lastVideoTs - lastAudioTs;
+            maxDriftMs = Math.max(maxDriftMs, Math.abs(driftMs));
+        }
+    }
+
+    // 本次探测读到的完整GOP数
+    public long getGopCount() {
+        return gopMs.getCount();
+    }
+
+    // 平均GOP长度(毫秒)，少于两个关键帧时为NaN
+    public double getGopMs() {
+        return gopMs.getMean();
+    }
+
+    // 把本次探测的GOP样本合并到跨探测的统计中
+    public void mergeGopInto(RunningStats target) {
+        target.merge(gopMs);
+    }
+
+    public double getMaxGopMs() {
+        return gopMs.getMax();
+    }
+
+    // 按相邻视频帧的平均间隔计算的实际帧率，少于两个连续视频帧时为NaN
+    public double getFrameRate() {
+        double interval = frameIntervalMs.getMean();
+        return interval > 0 ? 1000.0 / interval : Double.NaN;
+    }
+
+    // 视频帧间隔的标准差(毫秒)
+    public double getFrameIntervalJitterMs() {
+        return frameIntervalMs.getStddev();
+    }
+
+    public boolean hasAudioAndVideo() {
+        return videoFrames > 0 && audioFrames > 0;
+    }
+
+    public long getDriftMs() {
+        return driftMs;
+    }
+
+    public long getMaxDriftMs() {
+        return maxDriftMs;
+    }
+
+    public int getJumps() {
+        return jumps;
+    }
+
+    public int getRollbacks() {
+        return rollbacks;
+    }
+
+    public int getVideoFrames() {
+        return videoFrames;
+    }
+
+    public int getAudioFrames() {
+        return audioFrames;
+    }
+
+    @Override
+    public String toString() {
+        return "FlvTimingAnalysis{gopMs=" + getGopMs() + ", fps=" + getFrameRate() + ", driftMs=" + driftMs
+                + ", jumps=" + jumps + ", rollbacks=" + rollbacks + ", video=" + videoFrames + ", audio=" + audioFrames + "}";
+    }
+}
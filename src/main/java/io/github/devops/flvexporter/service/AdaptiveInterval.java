@@ -0,0 +1,114 @@
+package io.github.devops.flvexporter.service;
+
+// 按稳定性自适应的检测间隔：连续正常一定次数后间隔按倍数放大，直到上限；
+// 一次失败或响应时间突增立即回到配置的间隔；最近一段时间状态反复变化的流缩短间隔重点关注
+final class AdaptiveInterval {
+
+    // 判断是否抖动时考察的最近检测次数
+    private static final int FLAP_WINDOW = 16;
+
+    // 响应时间均值的平滑系数，以及开始判断突增前需要的成功次数
+    private static final double EWMA_ALPHA = 0.2;
+    private static final int EWMA_WARMUP = 5;
+
+    private final long maxIntervalMs;
+    private final long floorMs;
+    private final int stableChecks;
+    private final double backoffFactor;
+    private final int flapTransitions;
+    private final double flapFactor;
+    private final double spikeRatio;
+    private final long spikeThresholdMs;
+
+    AdaptiveInterval(long maxIntervalMs, long floorMs, int stableChecks, double backoffFactor,
+                     int flapTransitions, double flapFactor, double spikeRatio, long spikeThresholdMs) {
+        this.maxIntervalMs = maxIntervalMs;
+        this.floorMs = Math.max(1, floorMs);
+        this.stableChecks = Math.max(1, stableChecks);
+        this.backoffFactor = Math.max(1.0, backoffFactor);
+        this.flapTransitions = Math.max(1, Math.min(FLAP_WINDOW - 1, flapTransitions));
+        this.flapFactor = flapFactor;
+        this.spikeRatio = spikeRatio;
+        this.spikeThresholdMs = spikeThresholdMs;
+    }
+
+    Tracker newTracker(long baseIntervalMs) {
+        return new Tracker(baseIntervalMs);
+    }
+
+    // 单个流的自适应状态，每次检测完成后更新一次
+    final class Tracker {
+
+        private long baseMs;
+        private volatile long currentMs;
+        private int stable;
+        // 最近的检测结果，最低位为最新一次，1=正常
+        private int statusBits;
+        private int samples;
+        private double latencyEwma;
+        private int latencySamples;
+
+        private Tracker(long baseIntervalMs) {
+            this.baseMs = Math.max(floorMs, baseIntervalMs);
+            this.currentMs = baseMs;
+        }
+
+        long getIntervalMs() {
+            return currentMs;
+        }
+
+        // 配置的间隔变化后重新从新的间隔开始
+        synchronized void rebase(long baseIntervalMs) {
+            long base = Math.max(floorMs, baseIntervalMs);
+            if (base != baseMs) {
+                baseMs = base;
+                currentMs = base;
+                stable = 0;
+            }
+        }
+
+        // 记录一次检测结果，返回下一次检测应使用的间隔
+        synchronized long update(boolean healthy, double latencyMs) {
+            statusBits = (statusBits << 1) | (healthy ? 1 : 0);
+            if (samples < FLAP_WINDOW) {
+                samples++;
+            }
+            if (isFlapping()) {
+                stable = 0;
+                currentMs = Math.max(floorMs, Math.round(baseMs * flapFactor));
+            } else if (!healthy || isSpike(latencyMs)) {
+                stable = 0;
+                currentMs = baseMs;
+            } else if (currentMs < baseMs) {
+                // 抖动结束后先回到配置的间隔，再按稳定性放大
+                stable = 1;
+                currentMs = baseMs;
+            } else if (++stable >= stableChecks) {
+                stable = 0;
+                long max = Math.max(baseMs, maxIntervalMs);
+                currentMs = Math.min(max, Math.max(currentMs + 1, Math.round(currentMs * backoffFactor)));
+            }
+            if (healthy) {
+                latencyEwma = latencySamples == 0 ? latencyMs : latencyEwma + EWMA_ALPHA * (latencyMs - latencyEwma);
+                latencySamples++;
+            }
+            return currentMs;
+        }
+
+        // 最近 FLAP_WINDOW 次检测中状态变化的次数达到阈值
+        private boolean isFlapping() {
+            if (samples < 2) {
+                return false;
+            }
+            int mask = (1 << (samples - 1)) - 1;
+            return Integer.bitCount((statusBits ^ (statusBits >>> 1)) & mask) >= flapTransitions;
+        }
+
+        private boolean isSpike(double latencyMs) {
+            if (spikeThresholdMs > 0 && latencyMs > spikeThresholdMs) {
+                return true;
+            }
+            return spikeRatio > 0 && latencySamples >= EWMA_WARMUP && latencyMs > latencyEwma * spikeRatio;
+        }
+    }
+}
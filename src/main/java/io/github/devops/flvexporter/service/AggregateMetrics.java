@@ -0,0 +1,237 @@
+package io.github.devops.flvexporter.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 汇总指标模式(flv.metrics.mode=aggregate)：按项目导出正常/异常/未知的流数量，
+// 单个流的序列只保留当前最慢或失败的K个流。定时遍历一次所有流，用大小为K的最小堆选出top-K，
+// 进出top-K时注册或删除对应的Gauge，Prometheus中每个流的序列数上限为2K
+@Service
+public class AggregateMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(AggregateMetrics.class);
+
+    // 失败的流排在所有正常的流之前
+    private static final double FAILING_SCORE = Double.MAX_VALUE;
+
+    @Value("${flv.metrics.top-k:100}")
+    private int topK;
+
+    // 重新统计项目汇总和top-K的间隔(毫秒)
+    @Value("${flv.metrics.aggregate-refresh:5000}")
+    private long refreshIntervalMs;
+
+    private final FlvCheckService flvCheckService;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, ProjectCounts> projects = new HashMap<>();
+    private final Map<String, List<Meter>> topMeters = new HashMap<>();
+    private ScheduledExecutorService refreshExecutor;
+
+    // 复用的最小堆：scores[i] 为分数，indexes[i] 为流在列表中的下标
+    private double[] heapScores;
+    private int[] heapIndexes;
+
+    public AggregateMetrics(FlvCheckService flvCheckService, MeterRegistry meterRegistry) {
+        this.flvCheckService = flvCheckService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!flvCheckService.isAggregateMetrics()) {
+            return;
+        }
+        this.heapScores = new double[Math.max(0, topK)];
+        this.heapIndexes = new int[Math.max(0, topK)];
+        refresh();
+        this.refreshExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "flv-aggregate-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        refreshExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                logger.warn("刷新汇总指标失败: {}", e.getMessage());
+            }
+        }, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("汇总指标模式已开启，top-K: {}, 刷新间隔: {}ms", topK, refreshIntervalMs);
+    }
+
+    synchronized void refresh() {
+        List<StreamState> states = flvCheckService.getStates();
+        Map<String, int[]> counts = new HashMap<>();
+        int size = 0;
+        for (int i = 0; i < states.size(); i++) {
+            StreamState state = states.get(i);
+            double status = state.getStatus();
+            int[] count = counts.computeIfAbsent(state.getProject(), project -> new int[3]);
+            if (status == StreamState.STATUS_UNKNOWN || state.getLastCheckMillis() == 0) {
+                // 还没有检测结果(启动或热加载新增后尚未检测)也算未知，不能当作异常
+                count[2]++;
+                continue;
+            }
+            count[status == 1.0 ? 0 : 1]++;
+            double score = status == 1.0 ? state.getResponseTimeMs() : FAILING_SCORE;
+            if (size < heapScores.length) {
+                heapScores[size] = score;
+                heapIndexes[size] = i;
+                siftUp(size++);
+            } else if (size > 0 && score > heapScores[0]) {
+                heapScores[0] = score;
+                heapIndexes[0] = i;
+                siftDown(0, size);
+            }
+        }
+
+        updateProjects(counts);
+
+        Map<String, StreamState> top = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            StreamState state = states.get(heapIndexes[i]);
+            top.put(state.getName(), state);
+        }
+        updateTopStreams(top);
+    }
+
+    private void updateProjects(Map<String, int[]> counts) {
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            ProjectCounts project = projects.get(entry.getKey());
+            if (project == null) {
+                project = new ProjectCounts(entry.getKey());
+                project.register(meterRegistry);
+                projects.put(entry.getKey(), project);
+            }
+            project.set(entry.getValue());
+        }
+        // 配置热加载后已不存在的项目
+        projects.values().removeIf(project -> {
+            if (counts.containsKey(project.name)) {
+                return false;
+            }
+            project.remove(meterRegistry);
+            return true;
+        });
+    }
+
+    private void updateTopStreams(Map<String, StreamState> top) {
+        Set<String> left = new HashSet<>(topMeters.keySet());
+        left.removeAll(top.keySet());
+        for (String name : left) {
+            for (Meter meter : topMeters.remove(name)) {
+                meterRegistry.remove(meter);
+            }
+        }
+        for (StreamState state : top.values()) {
+            if (topMeters.containsKey(state.getName())) {
+                continue;
+            }
+            List<Meter> meters = new ArrayList<>(2);
+            meters.add(Gauge.builder("flv_stream_status", state, StreamState::getStatus)
+                    .description("FLV stream status (1=up, 0=down, -1=unknown), only for the current top-K slowest or failing streams")
+                    .tags("stream_name", state.getName(), "project", state.getProject())
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("flv_stream_response_time_ms", state, StreamState::getResponseTimeMs)
+                    .description("FLV stream response time in milliseconds, only for the current top-K slowest or failing streams")
+                    .tags("stream_name", state.getName(), "project", state.getProject())
+                    .register(meterRegistry));
+            topMeters.put(state.getName(), meters);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapScores[parent] <= heapScores[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int size) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && heapScores[left + 1] < heapScores[left] ? left + 1 : left;
+            if (heapScores[i] <= heapScores[smallest]) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double score = heapScores[a];
+        heapScores[a] = heapScores[b];
+        heapScores[b] = score;
+        int index = heapIndexes[a];
+        heapIndexes[a] = heapIndexes[b];
+        heapIndexes[b] = index;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    // 单个项目的流数量，Gauge读取最近一次统计的结果
+    private static final class ProjectCounts {
+        private static final String[] STATUSES = {"up", "down", "unknown"};
+
+        final String name;
+        final double[] values = new double[STATUSES.length];
+        final List<Meter> meters = new ArrayList<>(STATUSES.length);
+
+        ProjectCounts(String name) {
+            this.name = name;
+        }
+
+        void register(MeterRegistry registry) {
+            for (int i = 0; i < STATUSES.length; i++) {
+                int status = i;
+                meters.add(Gauge.builder("flv_project_streams", this, counts -> counts.values[status])
+                        .description("Number of FLV streams of the project by status")
+                        .tags("project", name, "status", STATUSES[i])
+                        .register(registry));
+            }
+        }
+
+        void set(int[] counts) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = counts[i];
+            }
+        }
+
+        void remove(MeterRegistry registry) {
+            for (Meter meter : meters) {
+                registry.remove(meter);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.flv.FlvProbeResult;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 基于 OkHttp Call.enqueue 的非阻塞探测引擎：
+// 排队中的请求和重试等待都不占用线程，并发上限交给 Dispatcher 控制
+class AsyncProbeEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncProbeEngine.class);
+
+    // 读取响应并给出检测结果，在 OkHttp 的回调线程上执行
+    interface ResponseReader {
+        FlvProbeResult read(String streamUrl, Response response, long startNanos) throws IOException;
+    }
+
+    private final OkHttpClient httpClient;
+    // 实际发起请求的客户端，按源站选择，与 httpClient 共用 Dispatcher
+    private final Call.Factory callFactory;
+    private final ScheduledExecutorService retryTimer;
+    private final ResponseReader responseReader;
+    // 为null时不做熔断
+    private final HostCircuitBreakers circuitBreakers;
+    private final int maxRetries;
+    private final long retryDelayMs;
+    private final long retryMaxDelayMs;
+
+    AsyncProbeEngine(OkHttpClient httpClient, Call.Factory callFactory, ScheduledExecutorService retryTimer, ResponseReader responseReader,
+                     HostCircuitBreakers circuitBreakers, int maxInFlight, int maxInFlightPerHost,
+                     int maxRetries, long retryDelayMs, long retryMaxDelayMs) {
+        this.httpClient = httpClient;
+        this.callFactory = callFactory;
+        this.retryTimer = retryTimer;
+        this.responseReader = responseReader;
+        this.circuitBreakers = circuitBreakers;
+        this.maxRetries = maxRetries;
+        this.retryDelayMs = retryDelayMs;
+        this.retryMaxDelayMs = retryMaxDelayMs;
+        httpClient.dispatcher().setMaxRequests(maxInFlight);
+        httpClient.dispatcher().setMaxRequestsPerHost(maxInFlightPerHost);
+    }
+
+    // 每次请求的超时和重试等待都不超过 deadline 的剩余时间；请求带上 deadline 作为tag，
+    // 在Dispatcher中真正开始执行时才开始计算检测预算，排队时间不占用预算
+    CompletableFuture<FlvProbeResult> probe(StreamState state, Request request, ProbeDeadline deadline) {
+        String host = HostCircuitBreakers.hostKey(request.url());
+        if (circuitBreakers != null && !circuitBreakers.tryAcquire(host)) {
+            // 源站熔断中，不发请求也不重试
+            logger.debug("FLV流 {} 所在源站 {} 熔断中，跳过检测", state.getName(), host);
+            return CompletableFuture.completedFuture(HostCircuitBreakers.openResult(host));
+        }
+        CompletableFuture<FlvProbeResult> future = new CompletableFuture<>();
+        if (circuitBreakers != null) {
+            // 整个检测(含重试)只报告一次最终结果，被取消或超过截止时间的检测不计入源站失败
+            future.whenComplete((result, error) -> circuitBreakers.complete(host, result, state.isRemoved() || deadline.isAborted()));
+        }
+        Request tagged = request.newBuilder().tag(ProbeDeadline.class, deadline).build();
+        attempt(state, tagged, deadline, 1, future);
+        return future;
+    }
+
+    int queuedCalls() {
+        return httpClient.dispatcher().queuedCallsCount();
+    }
+
+    int runningCalls() {
+        return httpClient.dispatcher().runningCallsCount();
+    }
+
+    private void attempt(StreamState state, Request request, ProbeDeadline deadline, int attempt,
+                         CompletableFuture<FlvProbeResult> future) {
+        if (future.isDone()) {
+            return;
+        }
+        if (deadline.isExpired()) {
+            future.complete(ProbeDeadline.timeoutResult());
+            return;
+        }
+        String streamName = state.getName();
+        long startNanos = System.nanoTime();
+        Call probeCall = callFactory.newCall(request);
+        deadline.attach(probeCall);
+        probeCall.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                FlvProbeResult result;
+                try (Response r = response) {
+                    result = responseReader.read(request.url().toString(), r, startNanos);
+                } catch (Exception e) {
+                    result = failure(e);
+                }
+                complete(state, request, deadline, attempt, future, result);
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                logger.debug("FLV流 {} 第{}次检测异常: {} - {}", streamName, attempt, e.getClass().getSimpleName(), e.getMessage());
+                FlvProbeResult result = failure(e);
+                complete(state, request, deadline, attempt, future, result);
+            }
+        });
+    }
+
+    private void complete(StreamState state, Request request, ProbeDeadline deadline, int attempt,
+                          CompletableFuture<FlvProbeResult> future, FlvProbeResult result) {
+        String streamName = state.getName();
+        if (result.isHealthy()) {
+            if (attempt > 1) {
+                logger.debug("FLV流 {} 在第{}次重试后检测成功", streamName, attempt);
+            }
+            future.complete(result);
+            return;
+        }
+        if (attempt >= maxRetries || state.isRemoved()) {
+            // 重试次数用完，或流已从配置中移除
+            future.complete(result);
+            return;
+        }
+
+        // 重试由定时器调度，等待期间不占用任何线程；间隔按指数退避并加随机抖动
+        long delayMs = HostCircuitBreakers.backoffDelay(retryDelayMs, retryMaxDelayMs, attempt - 1);
+        if (delayMs >= deadline.remainingMillis()) {
+            // 等待结束时已超过截止时间，不再重试
+            future.complete(result);
+            return;
+        }
+        logger.debug("FLV流 {} 第{}次检测失败，准备重试", streamName, attempt);
+        try {
+            retryTimer.schedule(() -> attempt(state, request, deadline, attempt + 1, future), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 服务关闭中，直接返回最后一次结果
+            future.complete(result);
+        }
+    }
+
+    private static FlvProbeResult failure(Exception e) {
+        FlvProbeResult result = new FlvProbeResult();
+        result.setError(e.getClass().getSimpleName() + ": " + e.getMessage());
+        result.setHealthy(false);
+        return result;
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.flv.FlvThroughputReader;
+
+import java.util.concurrent.TimeUnit;
+
+// 全局带宽限制：令牌桶，容量为1秒的额度。额度不足时记为欠账，
+// 调用方按欠账睡眠，读得慢了TCP窗口自然收缩，所有持续探测合计不超过上限
+class BandwidthLimiter implements FlvThroughputReader.Throttle {
+
+    private final double bytesPerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    BandwidthLimiter(long bytesPerSecond) {
+        this.bytesPerNano = bytesPerSecond / 1_000_000_000.0;
+        this.capacity = bytesPerSecond;
+        this.tokens = capacity;
+    }
+
+    @Override
+    public void acquire(long bytes) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * bytesPerNano);
+            lastRefill = now;
+            tokens -= bytes;
+            waitNanos = tokens < 0 ? (long) (-tokens / bytesPerNano) : 0;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.devops.flvexporter.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.Dns;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+// 进程内DNS缓存：成功结果按TTL缓存，解析失败也短暂缓存，避免每次探测都查一次DNS；
+// 同一个Host同时只发起一次解析，其他请求等待结果。配置了固定地址的Host不走DNS
+class CachingDns implements Dns {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingDns.class);
+
+    private final Dns delegate;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+    private final Map<String, List<InetAddress>> overrides;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    CachingDns(Dns delegate, long ttlMs, long negativeTtlMs, Map<String, List<InetAddress>> overrides) {
+        this.delegate = delegate;
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.overrides = overrides;
+    }
+
+    void registerMeters(MeterRegistry registry) {
+        FunctionCounter.builder("flv_dns_cache_requests_total", hits, LongAdder::sum)
+                .description("DNS lookups made by FLV probes")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("flv_dns_cache_requests_total", misses, LongAdder::sum)
+                .description("DNS lookups made by FLV probes")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("flv_dns_lookup_failures_total", failures, LongAdder::sum)
+                .description("DNS lookups that failed to resolve")
+                .register(registry);
+        Gauge.builder("flv_dns_cache_size", cache, Map::size)
+                .description("Number of host names in the DNS cache")
+                .register(registry);
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        String host = hostname.toLowerCase(Locale.ROOT);
+        List<InetAddress> fixed = overrides.get(host);
+        if (fixed != null) {
+            hits.increment();
+            return fixed;
+        }
+
+        Entry entry = cache.get(host);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            hits.increment();
+            return entry.resolve(hostname);
+        }
+
+        misses.increment();
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = inFlight.putIfAbsent(host, mine);
+        if (existing != null) {
+            return await(existing).resolve(hostname);
+        }
+        try {
+            entry = resolve(hostname);
+            cache.put(host, entry);
+            mine.complete(entry);
+            return entry.resolve(hostname);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(host, mine);
+        }
+    }
+
+    private Entry resolve(String hostname) {
+        long now = System.currentTimeMillis();
+        try {
+            List<InetAddress> addresses = delegate.lookup(hostname);
+            return new Entry(Collections.unmodifiableList(addresses), null, now + ttlMs);
+        } catch (UnknownHostException e) {
+            failures.increment();
+            logger.warn("DNS解析 {} 失败: {}", hostname, e.getMessage());
+            return new Entry(null, e.getMessage(), now + negativeTtlMs);
+        }
+    }
+
+    private static Entry await(CompletableFuture<Entry> future) throws UnknownHostException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnknownHostException("等待DNS解析被中断");
+        } catch (ExecutionException e) {
+            throw new UnknownHostException(e.getCause().getMessage());
+        }
+    }
+
+    private static final class Entry {
+        final List<InetAddress> addresses;
+        final String error;
+        final long expiresAt;
+
+        Entry(List<InetAddress> addresses, String error, long expiresAt) {
+            this.addresses = addresses;
+            this.error = error;
+            this.expiresAt = expiresAt;
+        }
+
+        List<InetAddress> resolve(String hostname) throws UnknownHostException {
+            if (addresses == null) {
+                throw new UnknownHostException(hostname + ": " + error);
+            }
+            return addresses;
+        }
+    }
+}
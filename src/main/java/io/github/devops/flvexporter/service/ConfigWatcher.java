@@ -0,0 +1,219 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.config.FlvConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 配置文件热加载：监听 flv.urls 和 flv.intervals 所在的配置文件，
+// 内容变化后重新绑定并增量更新流集合，无需重启服务
+@Component
+public class ConfigWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigWatcher.class);
+
+    private final FlvConfig flvConfig;
+    private final FlvCheckService flvCheckService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${flv.reload.enabled:true}")
+    private boolean enabled;
+
+    @Value("${flv.reload.file:config/application.yml}")
+    private String configFile;
+
+    // 编辑器保存文件时可能连续触发多个事件，等待文件稳定后再加载
+    @Value("${flv.reload.debounce:1000}")
+    private long debounceMs;
+
+    // 兜底轮询间隔，挂载到容器中的文件不一定能收到文件系统事件
+    @Value("${flv.reload.poll-interval:10000}")
+    private long pollIntervalMs;
+
+    private Counter reloadSuccess;
+    private Counter reloadFailure;
+
+    private Path configPath;
+    private byte[] lastDigest;
+    private WatchService watchService;
+    private volatile boolean running;
+    private Thread thread;
+
+    public ConfigWatcher(FlvConfig flvConfig, FlvCheckService flvCheckService, MeterRegistry meterRegistry) {
+        this.flvConfig = flvConfig;
+        this.flvCheckService = flvCheckService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            logger.info("配置热加载已关闭");
+            return;
+        }
+
+        configPath = Paths.get(configFile).toAbsolutePath().normalize();
+        if (!Files.isRegularFile(configPath)) {
+            logger.warn("配置文件 {} 不存在，配置热加载未启动", configPath);
+            return;
+        }
+
+        reloadSuccess = Counter.builder("flv_config_reloads_total")
+                .description("Number of FLV configuration reloads")
+                .tag("result", "success")
+                .register(meterRegistry);
+        reloadFailure = Counter.builder("flv_config_reloads_total")
+                .description("Number of FLV configuration reloads")
+                .tag("result", "failure")
+                .register(meterRegistry);
+
+        lastDigest = digest(configPath);
+        try {
+            // 监听父目录，ConfigMap等通过替换符号链接更新的文件也能收到事件
+            watchService = FileSystems.getDefault().newWatchService();
+            configPath.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.warn("无法监听配置目录 {}，仅使用轮询: {}", configPath.getParent(), e.getMessage());
+            watchService = null;
+        }
+
+        running = true;
+        thread = new Thread(this::run, "flv-config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("配置热加载已启动，文件: {}, 轮询间隔: {}ms", configPath, pollIntervalMs);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                boolean changed = awaitChange();
+                if (!running) {
+                    return;
+                }
+                if (changed) {
+                    // 等待写入完成，合并短时间内的多次事件
+                    Thread.sleep(debounceMs);
+                    drainEvents();
+                }
+                reloadIfChanged();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (Exception e) {
+                logger.error("配置文件监听异常: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    // 等待目录事件，超过轮询间隔没有事件也返回，由摘要比较决定是否真的变化
+    private boolean awaitChange() throws InterruptedException {
+        if (watchService == null) {
+            Thread.sleep(pollIntervalMs);
+            return false;
+        }
+        WatchKey key = watchService.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+        if (key == null) {
+            return false;
+        }
+        key.pollEvents();
+        key.reset();
+        return true;
+    }
+
+    private void drainEvents() {
+        if (watchService == null) {
+            return;
+        }
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+            // 事件只用于唤醒，内容不关心
+            key.pollEvents();
+            key.reset();
+        }
+    }
+
+    private void reloadIfChanged() {
+        byte[] current = digest(configPath);
+        if (current == null || Arrays.equals(current, lastDigest)) {
+            return;
+        }
+        lastDigest = current;
+        reload();
+    }
+
+    // 重新绑定 flv 前缀的配置，只替换流列表和检测间隔，其他参数仍需重启生效
+    synchronized void reload() {
+        try {
+            List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                    .load("flv-reload", new FileSystemResource(configPath.toFile()));
+            FlvConfig loaded = new Binder(ConfigurationPropertySources.from(sources))
+                    .bind("flv", FlvConfig.class)
+                    .orElseGet(FlvConfig::new);
+
+            flvConfig.setUrls(loaded.getUrls());
+            flvConfig.setIntervals(loaded.getIntervals());
+            flvCheckService.reloadStreams();
+
+            reloadSuccess.increment();
+            logger.info("配置文件 {} 已重新加载", configPath);
+        } catch (Exception e) {
+            // 配置有误时保留当前流集合继续检测
+            reloadFailure.increment();
+            logger.error("重新加载配置文件 {} 失败，继续使用当前配置: {}", configPath, e.getMessage());
+        }
+    }
+
+    private static byte[] digest(Path path) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(path));
+        } catch (IOException e) {
+            // 文件正在被替换时可能短暂不可读，下次再比较
+            logger.debug("读取配置文件 {} 失败: {}", path, e.getMessage());
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("关闭配置文件监听失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.devops.flvexporter.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// 多生产者单消费者的有界无锁环形缓冲区：每个槽位带一个序号，生产者CAS抢占写入位置，
+// 写满时 offer 直接返回false，检测线程不会因为日志输出跟不上而阻塞
+final class EventRing<T> {
+
+    private final int mask;
+    private final AtomicReferenceArray<T> slots;
+    // 槽位序号等于写入位置时可写，等于写入位置+1时可读
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // 只有消费线程读写
+    private long head;
+
+    EventRing(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    boolean offer(T item) {
+        while (true) {
+            long pos = tail.get();
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.lazySet(index, item);
+                    sequences.lazySet(index, pos + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                // 消费者还没读走一整圈之前的数据，已满
+                return false;
+            }
+            // 其他生产者已抢占该位置，重新读取 tail
+        }
+    }
+
+    // 只能由单个消费线程调用，没有可读数据时返回null
+    T poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        T item = slots.get(index);
+        slots.lazySet(index, null);
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+        return item;
+    }
+}
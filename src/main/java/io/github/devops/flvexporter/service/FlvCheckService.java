@@ -1,7 +1,12 @@
 package io.github.devops.flvexporter.service;
 
 import io.github.devops.flvexporter.config.FlvConfig;
+import io.github.devops.flvexporter.flv.FlvProbeResult;
+import io.github.devops.flvexporter.flv.FlvTagParser;
+import io.github.devops.flvexporter.flv.FlvThroughputReader;
+import io.github.devops.flvexporter.flv.FlvThroughputResult;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
@@ -16,12 +21,19 @@ import javax.annotation.PreDestroy;
 
 import okhttp3.*;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class FlvCheckService {
@@ -29,9 +41,16 @@ public class FlvCheckService {
     private static final Logger logger = LoggerFactory.getLogger(FlvCheckService.class);
     
     private final FlvConfig flvConfig;
+    private final StreamRegistry streamRegistry;
     private final MeterRegistry meterRegistry;
     private ExecutorService executorService;
+    private ScheduledExecutorService retryTimer;
+    private AsyncProbeEngine asyncProbeEngine;
     private OkHttpClient httpClient;
+    // 按源站选择客户端发起请求，Dispatcher和连接统计与 httpClient 共享
+    private OriginClients originClients;
+    private final OriginClients.PoolStats poolStats = new OriginClients.PoolStats();
+    private Dns probeDns = Dns.SYSTEM;
     
     @Value("${flv.check.timeout:10000}")
     private int checkTimeout;
@@ -42,36 +61,555 @@ public class FlvCheckService {
     @Value("${flv.check.retries:3}")
     private int maxRetries;
     
-    // 存储每个流的状态 (1=正常, 0=异常)
-    private final Map<String, Double> streamStatus = new ConcurrentHashMap<>();
+    @Value("${flv.check.retry-delay:1000}")
+    private long retryDelayMs;
     
-    // 存储每个流的响应时间
-    private final Map<String, Double> responseTime = new ConcurrentHashMap<>();
+    // 重试间隔按指数增长的上限
+    @Value("${flv.check.retry-max-delay:10000}")
+    private long retryMaxDelayMs;
     
-    // 记录已注册的指标，避免重复注册
-    private final Set<String> registeredGauges = ConcurrentHashMap.newKeySet();
+    // 按源站Host熔断：连续失败达到阈值后熔断，熔断时间从 open-base 开始指数增长到 open-max
+    @Value("${flv.check.circuit.enabled:true}")
+    private boolean circuitEnabled;
     
-    public FlvCheckService(FlvConfig flvConfig, MeterRegistry meterRegistry) {
+    @Value("${flv.check.circuit.failure-threshold:5}")
+    private int circuitFailureThreshold;
+    
+    @Value("${flv.check.circuit.open-base:5000}")
+    private long circuitOpenBaseMs;
+    
+    @Value("${flv.check.circuit.open-max:300000}")
+    private long circuitOpenMaxMs;
+    
+    private HostCircuitBreakers circuitBreakers;
+    
+    // 检测执行方式: platform=固定线程池阻塞执行, async=基于OkHttp异步回调, virtual=每个检测一个虚拟线程
+    @Value("${flv.check.executor:platform}")
+    private String executorMode;
+    
+    // virtual模式下同时执行的最大检测数
+    @Value("${flv.check.virtual.max-concurrency:1000}")
+    private int virtualMaxConcurrency;
+    
+    private Semaphore virtualPermits;
+    
+    @Value("${flv.check.interval:30000}")
+    private long checkInterval;
+    
+    // 单次检测(含重试)的截止时间(毫秒)，从检测开始执行时计算，0表示检测超时的2倍；到期未完成的检测被取消并记为超时
+    @Value("${flv.check.deadline:0}")
+    private long checkDeadlineMs;
+    
+    // 检测最多排队多久(毫秒)，0表示检测间隔；到期仍未开始执行的检测不发起请求，状态记为未知(-1)，不算失败
+    @Value("${flv.check.cycle-deadline:0}")
+    private long cycleDeadlineMs;
+    
+    private long probeDeadlineMs;
+    private long queueDeadlineMs;
+    private Timer cycleDuration;
+    private Counter cycleOverruns;
+    private Counter probeTimeouts;
+    private Counter probeSkipped;
+    
+    // 调度方式: burst=每个间隔一次性检测所有流, wheel=时间轮按相位分散到整个间隔内
+    @Value("${flv.check.scheduler:burst}")
+    private String schedulerMode;
+    
+    @Value("${flv.check.wheel-tick:100}")
+    private long wheelTickMs;
+    
+    private StreamScheduler streamScheduler;
+    
+    // 自适应检测间隔：稳定的流逐步放大间隔，失败、响应时间突增或状态抖动时缩短
+    @Value("${flv.check.adaptive.enabled:false}")
+    private boolean adaptiveEnabled;
+    
+    // 放大后的间隔上限(毫秒)
+    @Value("${flv.check.adaptive.max-interval:300000}")
+    private long adaptiveMaxIntervalMs;
+    
+    // 连续正常多少次后放大一次间隔
+    @Value("${flv.check.adaptive.stable-checks:10}")
+    private int adaptiveStableChecks;
+    
+    @Value("${flv.check.adaptive.backoff-factor:2.0}")
+    private double adaptiveBackoffFactor;
+    
+    // 最近16次检测中状态变化达到该次数视为抖动，间隔缩短为配置间隔乘以 flap-factor
+    @Value("${flv.check.adaptive.flap-transitions:4}")
+    private int adaptiveFlapTransitions;
+    
+    @Value("${flv.check.adaptive.flap-factor:0.5}")
+    private double adaptiveFlapFactor;
+    
+    // 响应时间超过近期均值的倍数，或超过绝对阈值(毫秒，0为不限制)时视为突增
+    @Value("${flv.check.adaptive.latency-spike-ratio:3.0}")
+    private double adaptiveSpikeRatio;
+    
+    @Value("${flv.check.adaptive.latency-threshold:0}")
+    private long adaptiveSpikeThresholdMs;
+    
+    private AdaptiveInterval adaptiveInterval;
+    
+    // 滚动窗口内完成的检测次数，每次输出汇总后清零
+    private final LongAdder windowChecks = new LongAdder();
+    private final LongAdder windowFailures = new LongAdder();
+    private volatile long windowStart = System.currentTimeMillis();
+    
+    // async模式下全局和单个Host的最大并发请求数
+    @Value("${flv.check.max-in-flight:256}")
+    private int maxInFlight;
+    
+    @Value("${flv.check.max-in-flight-per-host:32}")
+    private int maxInFlightPerHost;
+    
+    // 深度检测：解析FLV头和Tag，而不是只看HTTP状态码
+    @Value("${flv.check.deep.enabled:true}")
+    private boolean deepCheckEnabled;
+    
+    // 深度检测单次探测最多读取的字节数
+    @Value("${flv.check.deep.max-bytes:262144}")
+    private long deepCheckMaxBytes;
+    
+    // 内容指纹(需开启深度检测)：对前几个视频Tag负载做哈希，和上一次检测相同或时间戳没有前进时判定为卡死
+    @Value("${flv.check.fingerprint.enabled:false}")
+    private boolean fingerprintEnabled;
+    
+    // 参与指纹计算的视频Tag数，每个Tag只取负载的前256字节
+    @Value("${flv.check.fingerprint.tags:4}")
+    private int fingerprintTags;
+    
+    // 连续多少次检测未变化后判定为卡死，长GOP或CDN缓存GOP的流相邻两次检测可能读到同一段数据，不宜设为1
+    @Value("${flv.check.fingerprint.stall-checks:3}")
+    private int fingerprintStallChecks;
+    
+    // 是否把最后一个Tag的时间戳没有前进也判定为卡死，CDN对每个连接从0开始重写时间戳时应关闭
+    @Value("${flv.check.fingerprint.timestamps:false}")
+    private boolean fingerprintTimestamps;
+    
+    // GOP和时间戳连续性分析(需开启深度检测)：开启后每次检测读满 deep.max-bytes，统计关键帧间隔、帧率、音视频时间差和时间戳跳变
+    @Value("${flv.check.timing.enabled:false}")
+    private boolean timingEnabled;
+    
+    // 同一轨道相邻Tag时间戳的差超过该值(毫秒)记为一次跳变
+    @Value("${flv.check.timing.jump-threshold:1000}")
+    private long timingJumpThresholdMs;
+    
+    // 按DNS、建连、TLS、首字节、首个FLV Tag分阶段记录耗时
+    @Value("${flv.check.phase.enabled:true}")
+    private boolean phaseEnabled;
+    
+    // 分阶段耗时直方图的SLO桶(毫秒)
+    @Value("${flv.check.phase.slo-ms:10,25,50,100,250,500,1000,2500,5000}")
+    private long[] phaseSloMs;
+    
+    private Duration[] phaseSlos;
+    
+    // 默认连接池的最大空闲连接数和空闲保持时间(毫秒)，源站单独配置见 flv.origins
+    @Value("${flv.check.pool.max-idle:64}")
+    private int poolMaxIdle;
+    
+    @Value("${flv.check.pool.keep-alive:300000}")
+    private long poolKeepAliveMs;
+    
+    // 进程内DNS缓存，成功和失败结果分别按TTL缓存(毫秒)
+    @Value("${flv.dns.cache.enabled:true}")
+    private boolean dnsCacheEnabled;
+    
+    @Value("${flv.dns.cache.ttl:60000}")
+    private long dnsCacheTtlMs;
+    
+    @Value("${flv.dns.cache.negative-ttl:5000}")
+    private long dnsCacheNegativeTtlMs;
+    
+    // 持续读取探测：定期对检测正常的流保持连接一段时间，观察能否跟上实时播放
+    @Value("${flv.check.sustained.enabled:false}")
+    private boolean sustainedEnabled;
+    
+    // 单次持续读取的观测窗口(毫秒)
+    @Value("${flv.check.sustained.window:10000}")
+    private long sustainedWindowMs;
+    
+    // 同一个流两次持续读取的最小间隔(毫秒)
+    @Value("${flv.check.sustained.interval:300000}")
+    private long sustainedIntervalMs;
+    
+    // 单次等待数据超过该时长记为一次卡顿(毫秒)
+    @Value("${flv.check.sustained.stall-threshold:1000}")
+    private long sustainedStallThresholdMs;
+    
+    // 同时进行的持续读取数
+    @Value("${flv.check.sustained.concurrency:4}")
+    private int sustainedConcurrency;
+    
+    // 所有持续读取合计的带宽上限(字节/秒)，0表示不限制
+    @Value("${flv.check.sustained.max-bandwidth:10485760}")
+    private long sustainedMaxBandwidth;
+    
+    // 分片模式：多个副本按一致性哈希分担流，每个副本只检测和导出自己负责的流。
+    // 副本列表为空时按 count 生成 shard-0..shard-(count-1)，两者都未配置时不分片
+    @Value("${flv.shard.peers:}")
+    private String[] shardPeers;
+    
+    @Value("${flv.shard.count:0}")
+    private int shardCount;
+    
+    // 本副本在列表中的下标，可通过环境变量 FLV_SHARD_INDEX 设置
+    @Value("${flv.shard.index:0}")
+    private int shardIndex;
+    
+    private ShardRing shardRing;
+    private String shardId;
+    
+    // 每个流保留的最近检测结果条数，用于可用率和延迟分位数接口，0表示不保留
+    @Value("${flv.history.size:360}")
+    private int historySize;
+    
+    // 预渲染模式：每个流的指标不注册到Micrometer，由 PrometheusExpositionCache 输出
+    @Value("${flv.metrics.cache.enabled:false}")
+    private boolean metricsCacheEnabled;
+    
+    // 指标模式: per-stream=每个流导出独立的序列, aggregate=只导出项目级汇总和top-K流
+    @Value("${flv.metrics.mode:per-stream}")
+    private String metricsMode;
+    
+    private StreamState.MeterMode meterMode;
+    
+    // 检测结果日志：重启后恢复最近状态，超过 stale-after 的结果标记为未知而不是异常
+    @Value("${flv.journal.enabled:false}")
+    private boolean journalEnabled;
+    
+    @Value("${flv.journal.file:data/flv-results.journal}")
+    private String journalFile;
+    
+    // 日志文件大小(字节)，写满后压缩
+    @Value("${flv.journal.max-size:67108864}")
+    private long journalMaxSize;
+    
+    @Value("${flv.journal.stale-after:300000}")
+    private long journalStaleAfterMs;
+    
+    private ResultJournal journal;
+    
+    // 检测事件日志：检测线程只写入环形缓冲区，由后台线程输出状态变化和限流后的失败日志
+    @Value("${flv.log.ring-size:8192}")
+    private int logRingSize;
+    
+    // 同一个流连续异常期间，每隔该时长(毫秒)最多输出一次失败日志
+    @Value("${flv.log.failure-interval:300000}")
+    private long logFailureIntervalMs;
+    
+    // 缓冲区为空时后台线程的等待间隔(毫秒)
+    @Value("${flv.log.drain-interval:200}")
+    private long logDrainIntervalMs;
+    
+    // 每轮汇总中最多列出的异常流数量
+    @Value("${flv.log.summary-details:20}")
+    private int logSummaryDetails;
+    
+    private ProbeEventLog eventLog;
+    
+    // 检测结果和流集合变化的订阅方，用于状态推送
+    private volatile StatusListener statusListener;
+    
+    private ExecutorService sustainedExecutor;
+    private OkHttpClient sustainedClient;
+    private BandwidthLimiter bandwidthLimiter;
+    // 每个持续读取线程复用一个读取器和丢弃缓冲区
+    private ThreadLocal<FlvThroughputReader> sustainedReaders;
+    
+    // 每个流的运行状态，注册时创建一次，检测热路径直接持有引用
+    private final Map<String, StreamState> streamStates = new ConcurrentHashMap<>();
+    
+    // 按配置顺序排列的流状态列表，用于遍历
+    private volatile List<StreamState> stateList = new ArrayList<>();
+    
+    public FlvCheckService(FlvConfig flvConfig, StreamRegistry streamRegistry, MeterRegistry meterRegistry) {
         this.flvConfig = flvConfig;
+        this.streamRegistry = streamRegistry;
         this.meterRegistry = meterRegistry;
     }
     
     @PostConstruct
     public void init() {
-        // 初始化线程池 - 在@Value注入完成后执行
-        this.executorService = Executors.newFixedThreadPool(checkThreads, r -> {
-            Thread t = new Thread(r, "flv-check-thread");
-            t.setDaemon(true);
-            return t;
-        });
+        if (phaseEnabled) {
+            this.phaseSlos = new Duration[phaseSloMs.length];
+            for (int i = 0; i < phaseSloMs.length; i++) {
+                phaseSlos[i] = Duration.ofMillis(phaseSloMs[i]);
+            }
+        }
+        
+        if (dnsCacheEnabled) {
+            CachingDns cachingDns = new CachingDns(Dns.SYSTEM, dnsCacheTtlMs, dnsCacheNegativeTtlMs, resolveAddressOverrides());
+            cachingDns.registerMeters(meterRegistry);
+            this.probeDns = cachingDns;
+        }
+        poolStats.registerMeters(meterRegistry);
+        initShardRing();
+        initDeadlineMeters();
         
         // 初始化OkHttp客户端
         this.httpClient = createUnsafeOkHttpClient();
+        this.originClients = new OriginClients(httpClient, flvConfig.getOrigins(), meterRegistry);
+        
+        if (circuitEnabled) {
+            this.circuitBreakers = new HostCircuitBreakers(meterRegistry, circuitFailureThreshold, circuitOpenBaseMs, circuitOpenMaxMs);
+        }
         
-        // 注册Gauge指标
-        registerGauges();
+        if (isAsyncMode()) {
+            // 异步模式只需要一个重试定时线程，请求并发由OkHttp Dispatcher控制
+            this.retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "flv-retry-timer");
+                t.setDaemon(true);
+                return t;
+            });
+            this.asyncProbeEngine = new AsyncProbeEngine(httpClient, originClients, retryTimer, this::readProbeResponse, circuitBreakers,
+                    maxInFlight, maxInFlightPerHost, maxRetries, retryDelayMs, retryMaxDelayMs);
+            registerEngineGauges();
+            logger.info("FLV检测服务初始化完成，执行方式: async, 最大并发: {}, 单Host最大并发: {}, HTTP客户端: OkHttp",
+                    maxInFlight, maxInFlightPerHost);
+        } else if (isVirtualMode() && VirtualThreads.isSupported()) {
+            // 每个检测运行在独立命名的虚拟线程上，用信号量代替线程池大小限制并发
+            this.virtualPermits = new Semaphore(virtualMaxConcurrency);
+            Gauge.builder("flv_check_executor_queue_depth", virtualPermits, Semaphore::getQueueLength)
+                    .description("Number of FLV checks waiting for a concurrency permit")
+                    .register(meterRegistry);
+            Gauge.builder("flv_check_executor_active", virtualPermits, p -> virtualMaxConcurrency - p.availablePermits())
+                    .description("Number of FLV checks currently running")
+                    .register(meterRegistry);
+            logger.info("FLV检测服务初始化完成，执行方式: virtual, 最大并发: {}, HTTP客户端: OkHttp", virtualMaxConcurrency);
+        } else {
+            if (isVirtualMode()) {
+                logger.warn("当前JVM ({}) 不支持虚拟线程，回退到固定线程池", System.getProperty("java.version"));
+                this.executorMode = "platform";
+            }
+            // 初始化线程池 - 在@Value注入完成后执行
+            AtomicInteger threadIndex = new AtomicInteger();
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(checkThreads, r -> {
+                Thread t = new Thread(r, "flv-check-thread-" + threadIndex.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            this.executorService = pool;
+            // 排队长度持续大于0说明线程数不够在截止时间内完成一轮检测
+            Gauge.builder("flv_check_executor_queue_depth", pool, p -> p.getQueue().size())
+                    .description("Number of FLV checks waiting for a check thread")
+                    .register(meterRegistry);
+            Gauge.builder("flv_check_executor_active", pool, ThreadPoolExecutor::getActiveCount)
+                    .description("Number of check threads currently running a FLV check")
+                    .register(meterRegistry);
+            logger.info("FLV检测服务初始化完成，线程池大小: {}, HTTP客户端: OkHttp", checkThreads);
+        }
+        
+        if (sustainedEnabled) {
+            initSustainedProbe();
+        }
         
-        logger.info("FLV检测服务初始化完成，线程池大小: {}, HTTP客户端: OkHttp", checkThreads);
+        if (isAggregateMetrics()) {
+            if (metricsCacheEnabled) {
+                logger.warn("flv.metrics.mode=aggregate 时不导出单个流的指标，flv.metrics.cache.enabled 不生效");
+            }
+            this.meterMode = StreamState.MeterMode.AGGREGATED;
+        } else {
+            this.meterMode = metricsCacheEnabled ? StreamState.MeterMode.PRERENDERED : StreamState.MeterMode.REGISTERED;
+        }
+        
+        if (adaptiveEnabled) {
+            initAdaptiveInterval();
+        }
+        
+        this.eventLog = new ProbeEventLog(meterRegistry, logRingSize, logFailureIntervalMs, logDrainIntervalMs);
+        
+        // 创建流状态并注册Gauge指标
+        registerStreams();
+        
+        if (journalEnabled) {
+            restoreFromJournal();
+        }
+        
+        if (isWheelScheduler()) {
+            startStreamScheduler();
+        }
+    }
+    
+    private void initAdaptiveInterval() {
+        // burst模式下每个 interval 才有一次检测机会，间隔不能短于它
+        long floorMs = isWheelScheduler() ? wheelTickMs : checkInterval;
+        this.adaptiveInterval = new AdaptiveInterval(adaptiveMaxIntervalMs, floorMs, adaptiveStableChecks, adaptiveBackoffFactor,
+                adaptiveFlapTransitions, adaptiveFlapFactor, adaptiveSpikeRatio, adaptiveSpikeThresholdMs);
+        Gauge.builder("flv_check_planned_rate", this, service -> {
+                    double rate = 0;
+                    for (StreamState state : service.stateList) {
+                        rate += 1000.0 / state.getAdaptive().getIntervalMs();
+                    }
+                    return rate;
+                })
+                .description("Checks per second planned by the adaptive intervals of all streams")
+                .register(meterRegistry);
+        logger.info("自适应检测间隔已开启，上限: {}ms, 连续正常{}次放大{}倍, 抖动阈值: {}次状态变化",
+                adaptiveMaxIntervalMs, adaptiveStableChecks, adaptiveBackoffFactor, adaptiveFlapTransitions);
+    }
+    
+    // 流的当前检测间隔：开启自适应时为自适应间隔，否则为配置的间隔
+    private long intervalOf(StreamState state) {
+        AdaptiveInterval.Tracker tracker = state.getAdaptive();
+        return tracker != null ? tracker.getIntervalMs() : flvConfig.resolveInterval(state.getFlvUrl(), checkInterval);
+    }
+    
+    private void initShardRing() {
+        List<String> peers = new ArrayList<>();
+        for (String peer : shardPeers) {
+            if (!peer.trim().isEmpty()) {
+                peers.add(peer.trim());
+            }
+        }
+        if (peers.isEmpty()) {
+            for (int i = 0; i < shardCount; i++) {
+                peers.add("shard-" + i);
+            }
+        }
+        if (peers.isEmpty()) {
+            return;
+        }
+        if (shardIndex < 0 || shardIndex >= peers.size()) {
+            throw new IllegalStateException("分片下标 " + shardIndex + " 超出副本列表范围: " + peers);
+        }
+        this.shardRing = new ShardRing(peers, ShardRing.DEFAULT_VIRTUAL_NODES);
+        this.shardId = peers.get(shardIndex);
+        Gauge.builder("flv_shard_owned_streams", this, service -> service.stateList.size())
+                .description("Number of FLV streams owned and checked by this shard")
+                .tag("shard", shardId)
+                .register(meterRegistry);
+        logger.info("分片模式已开启，本副本: {}, 副本列表: {}", shardId, peers);
+    }
+    
+    private boolean ownsStream(FlvConfig.FlvUrl flvUrl) {
+        return shardRing == null || shardId.equals(shardRing.ownerOf(flvUrl.getName()));
+    }
+    
+    private void restoreFromJournal() {
+        long start = System.nanoTime();
+        try {
+            this.journal = new ResultJournal(Paths.get(journalFile), journalMaxSize, this::getStates, meterRegistry);
+        } catch (IOException | RuntimeException e) {
+            logger.error("打开结果日志 {} 失败，本次不恢复也不记录检测结果: {}", journalFile, e.getMessage());
+            return;
+        }
+        int replayed = journal.replay();
+        long now = System.currentTimeMillis();
+        int restored = 0;
+        int unknown = 0;
+        for (StreamState state : stateList) {
+            if (state.getLastCheckMillis() == 0 || now - state.getLastCheckMillis() > journalStaleAfterMs) {
+                state.markUnknown();
+                unknown++;
+            } else {
+                restored++;
+            }
+        }
+        logger.info("结果日志回放完成，记录数: {}, 恢复状态的流: {}, 状态未知的流: {}, 耗时: {}ms",
+                replayed, restored, unknown, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+    
+    private void initSustainedProbe() {
+        // 共用连接池和Dispatcher，只放宽超时，保证观测窗口内不会被callTimeout打断；
+        // 不使用分阶段耗时监听，否则长时间的持续读取会计入 flv_probe_phase_duration
+        this.sustainedClient = httpClient.newBuilder()
+                .callTimeout(Duration.ofMillis(sustainedWindowMs + checkTimeout * 3L))
+                .eventListener(EventListener.NONE)
+                .build();
+        this.bandwidthLimiter = sustainedMaxBandwidth > 0 ? new BandwidthLimiter(sustainedMaxBandwidth) : null;
+        this.sustainedReaders = ThreadLocal.withInitial(
+                () -> new FlvThroughputReader(16 * 1024, sustainedStallThresholdMs, bandwidthLimiter));
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 队列满时直接放弃，该流下次检测成功时再尝试
+        this.sustainedExecutor = new ThreadPoolExecutor(sustainedConcurrency, sustainedConcurrency,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(sustainedConcurrency * 4), r -> {
+                    Thread t = new Thread(r, "flv-sustained-thread-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        logger.info("持续读取探测已开启，观测窗口: {}ms, 间隔: {}ms, 并发: {}, 带宽上限: {}B/s",
+                sustainedWindowMs, sustainedIntervalMs, sustainedConcurrency, sustainedMaxBandwidth);
+    }
+    
+    private boolean isWheelScheduler() {
+        return "wheel".equalsIgnoreCase(schedulerMode);
+    }
+    
+    private void startStreamScheduler() {
+        this.streamScheduler = new StreamScheduler(wheelTickMs, this::dispatchCheck);
+        for (StreamState state : stateList) {
+            streamScheduler.schedule(state, intervalOf(state));
+        }
+        FunctionCounter.builder("flv_scheduler_skipped_total", streamScheduler, StreamScheduler::skippedCount)
+                .description("Scheduled checks skipped because the previous check of the stream was still running")
+                .register(meterRegistry);
+        streamScheduler.start();
+    }
+    
+    private boolean isAsyncMode() {
+        return "async".equalsIgnoreCase(executorMode);
+    }
+    
+    private boolean isVirtualMode() {
+        return "virtual".equalsIgnoreCase(executorMode);
+    }
+    
+    // flv.origins 中配置的固定地址，Host统一转为小写
+    private Map<String, List<InetAddress>> resolveAddressOverrides() {
+        Map<String, List<InetAddress>> overrides = new HashMap<>();
+        if (flvConfig.getOrigins() == null) {
+            return overrides;
+        }
+        for (Map.Entry<String, FlvConfig.Origin> entry : flvConfig.getOrigins().entrySet()) {
+            List<String> addresses = entry.getValue().getAddresses();
+            if (addresses == null || addresses.isEmpty()) {
+                continue;
+            }
+            List<InetAddress> resolved = new ArrayList<>(addresses.size());
+            for (String address : addresses) {
+                try {
+                    // 只接受IP字面量，不会触发DNS查询
+                    resolved.add(InetAddress.getByName(address.trim()));
+                } catch (UnknownHostException e) {
+                    logger.warn("源站 {} 的固定地址 {} 无效，已忽略", entry.getKey(), address);
+                }
+            }
+            if (!resolved.isEmpty()) {
+                overrides.put(entry.getKey().toLowerCase(Locale.ROOT), Collections.unmodifiableList(resolved));
+                logger.info("源站 {} 固定解析到 {}", entry.getKey(), resolved);
+            }
+        }
+        return overrides;
+    }
+    
+    private void initDeadlineMeters() {
+        this.probeDeadlineMs = checkDeadlineMs > 0 ? checkDeadlineMs : checkTimeout * 2L;
+        this.queueDeadlineMs = cycleDeadlineMs > 0 ? cycleDeadlineMs : checkInterval;
+        this.cycleDuration = Timer.builder("flv_check_cycle_duration")
+                .description("Time from the start of a check cycle until all checks finished or were cancelled")
+                .register(meterRegistry);
+        this.cycleOverruns = Counter.builder("flv_check_cycle_overruns_total")
+                .description("Check cycles in which some checks were still queued at the cycle deadline")
+                .register(meterRegistry);
+        this.probeTimeouts = Counter.builder("flv_check_timeouts_total")
+                .description("FLV checks that ran out of their deadline (stage=running) or never started before the cycle deadline (stage=queued)")
+                .tag("stage", "running")
+                .register(meterRegistry);
+        this.probeSkipped = Counter.builder("flv_check_timeouts_total")
+                .description("FLV checks that ran out of their deadline (stage=running) or never started before the cycle deadline (stage=queued)")
+                .tag("stage", "queued")
+                .register(meterRegistry);
+    }
+    
+    private void registerEngineGauges() {
+        Gauge.builder("flv_probe_in_flight", asyncProbeEngine, AsyncProbeEngine::runningCalls)
+                .description("Number of FLV probe requests currently in flight")
+                .register(meterRegistry);
+        Gauge.builder("flv_probe_queued", asyncProbeEngine, AsyncProbeEngine::queuedCalls)
+                .description("Number of FLV probe requests waiting for an in-flight slot")
+                .register(meterRegistry);
     }
     
     private OkHttpClient createUnsafeOkHttpClient() {
@@ -111,8 +649,13 @@ public class FlvCheckService {
                     .retryOnConnectionFailure(true)
                     .followRedirects(true)
                     .followSslRedirects(true)
+                    .connectionPool(new ConnectionPool(poolMaxIdle, poolKeepAliveMs, TimeUnit.MILLISECONDS))
+                    .dns(probeDns)
                     .sslSocketFactory(sslSocketFactory, (javax.net.ssl.X509TrustManager) trustAllCerts[0])
                     .hostnameVerifier((hostname, session) -> true)
+                    .eventListenerFactory(phaseListenerFactory())
+                    .addInterceptor(ProbeDeadline.startOnExecute())
+                    .addNetworkInterceptor(ProbeTargets.enforce())
                     .build();
 
         } catch (Exception e) {
@@ -126,102 +669,285 @@ public class FlvCheckService {
                     .retryOnConnectionFailure(true)
                     .followRedirects(true)
                     .followSslRedirects(true)
+                    .connectionPool(new ConnectionPool(poolMaxIdle, poolKeepAliveMs, TimeUnit.MILLISECONDS))
+                    .dns(probeDns)
+                    .eventListenerFactory(phaseListenerFactory())
+                    .addInterceptor(ProbeDeadline.startOnExecute())
+                    .addNetworkInterceptor(ProbeTargets.enforce())
                     .build();
         }
     }
     
-    private void registerGauges() {
-        // 为每个配置的流注册状态和响应时间指标
-        if (flvConfig.getUrls() != null) {
-            for (FlvConfig.FlvUrl flvUrl : flvConfig.getFlatUrls()) {
-                String streamName = flvUrl.getName();
-                
+    private EventListener.Factory phaseListenerFactory() {
+        return PhaseEventListener.factory(phaseEnabled ? streamStates::get : null, poolStats);
+    }
+    
+    private void registerStreams() {
+        applySnapshot(streamRegistry.getSnapshot());
+    }
+    
+    // 当前按配置顺序排列的流状态，供指标缓存和历史接口遍历
+    List<StreamState> getStates() {
+        return stateList;
+    }
+    
+    StreamState getState(String name) {
+        return streamStates.get(name);
+    }
+    
+    void setStatusListener(StatusListener statusListener) {
+        this.statusListener = statusListener;
+    }
+    
+    // 配置文件变化后重新构建流注册表，并增量应用到当前的流集合
+    public synchronized void reloadStreams() {
+        applySnapshot(streamRegistry.rebuild());
+    }
+    
+    // 和当前流集合做差异比较：新增的流注册指标并调度，移除的流删除指标并取消检测，
+    // 未变化的流保持原状态，不影响其正常检测
+    private synchronized void applySnapshot(StreamRegistry.Snapshot snapshot) {
+        List<StreamState> states = new ArrayList<>(snapshot.size());
+        int added = 0;
+        int removed = 0;
+        
+        for (FlvConfig.FlvUrl flvUrl : snapshot.getStreams()) {
+            if (!ownsStream(flvUrl)) {
+                // 由其他副本负责
+                continue;
+            }
+            StreamState state = streamStates.get(flvUrl.getName());
+            if (state != null && !state.isSameStream(flvUrl)) {
+                // 同名但URL或标签变化，按移除后重新添加处理
+                retireStream(state);
+                removed++;
+                state = null;
+            }
+            if (state == null) {
                 // 初始化状态为0（异常）
-                streamStatus.put(streamName, 0.0);
-                responseTime.put(streamName, 0.0);
-                
-                // 检查是否已注册状态指标
-                String statusGaugeKey = "flv_stream_status_" + streamName;
-                if (!registeredGauges.contains(statusGaugeKey)) {
-                    Gauge.builder("flv_stream_status", streamStatus, map -> map.getOrDefault(streamName, 0.0))
-                            .description("FLV stream status (1=up, 0=down)")
-                            .tag("stream_name", streamName)
-                            .tag("stream_url", flvUrl.getUrl())
-                            .tag("project", flvUrl.getProject())
-                            .tag("description", flvUrl.getDescription())
-                            .register(meterRegistry);
-                    registeredGauges.add(statusGaugeKey);
+                state = new StreamState(flvUrl, meterMode);
+                if (historySize > 0) {
+                    state.initHistory(historySize);
+                }
+                state.registerMeters(meterRegistry, deepCheckEnabled);
+                if (phaseEnabled) {
+                    state.registerPhaseMeters(meterRegistry, phaseSlos);
+                }
+                if (sustainedEnabled) {
+                    state.registerSustainedMeters(meterRegistry);
                 }
-                
-                // 检查是否已注册响应时间指标
-                String responseTimeGaugeKey = "flv_stream_response_time_ms_" + streamName;
-                if (!registeredGauges.contains(responseTimeGaugeKey)) {
-                    Gauge.builder("flv_stream_response_time_ms", responseTime, map -> map.getOrDefault(streamName, 0.0))
-                            .description("FLV stream response time in milliseconds")
-                            .tag("stream_name", streamName)
-                            .tag("stream_url", flvUrl.getUrl())
-                            .tag("project", flvUrl.getProject())
-                            .register(meterRegistry);
-                    registeredGauges.add(responseTimeGaugeKey);
+                if (adaptiveInterval != null) {
+                    state.initAdaptive(adaptiveInterval, flvConfig.resolveInterval(flvUrl, checkInterval), meterRegistry);
                 }
+                if (isFingerprintEnabled()) {
+                    state.initFingerprint(fingerprintStallChecks, fingerprintTimestamps, meterRegistry);
+                }
+                if (isTimingEnabled()) {
+                    state.initTimingAnalysis(meterRegistry);
+                }
+                streamStates.put(flvUrl.getName(), state);
+                added++;
+            } else if (state.getAdaptive() != null) {
+                // 配置的间隔变化时从新间隔重新开始，未变化时保持已放大的间隔
+                state.getAdaptive().rebase(flvConfig.resolveInterval(flvUrl, checkInterval));
+            }
+            if (streamScheduler != null) {
+                // 间隔未变的流不会被重新调度
+                streamScheduler.schedule(state, intervalOf(state));
+            }
+            states.add(state);
+        }
+        
+        for (StreamState state : new ArrayList<>(streamStates.values())) {
+            FlvConfig.FlvUrl current = snapshot.getStream(state.getName());
+            if (current == null || !ownsStream(current)) {
+                retireStream(state);
+                removed++;
+            }
+        }
+        
+        this.stateList = states;
+        StatusListener listener = statusListener;
+        if (listener != null && (added > 0 || removed > 0)) {
+            listener.onStreamsChanged();
+        }
+        logger.info("流集合已更新，版本: {}, 当前流数: {}, 新增: {}, 移除: {}", snapshot.getVersion(), states.size(), added, removed);
+    }
+    
+    private void retireStream(StreamState state) {
+        state.markRemoved();
+        streamStates.remove(state.getName(), state);
+        if (streamScheduler != null) {
+            streamScheduler.cancel(state.getName());
+        }
+        cancelCalls(state.getName());
+        state.removeMeters(meterRegistry);
+    }
+    
+    // 取消该流排队中和正在执行的请求，探测请求以流名称作为tag
+    private void cancelCalls(String streamName) {
+        for (Call call : httpClient.dispatcher().queuedCalls()) {
+            if (streamName.equals(call.request().tag(String.class))) {
+                call.cancel();
+            }
+        }
+        for (Call call : httpClient.dispatcher().runningCalls()) {
+            if (streamName.equals(call.request().tag(String.class))) {
+                call.cancel();
             }
         }
     }
     
     @Scheduled(fixedDelayString = "${flv.check.interval:30000}")
     public void checkAllStreams() {
+        if (isWheelScheduler()) {
+            // 时间轮模式下检测由调度器分散执行，这里只输出滚动窗口汇总
+            logRollingSummary();
+            return;
+        }
+        
         long startTime = System.currentTimeMillis();
         logger.info("开始并发检测所有FLV流状态");
         
-        if (flvConfig.getUrls() == null || flvConfig.getUrls().isEmpty()) {
+        if (stateList.isEmpty()) {
             logger.warn("没有配置FLV流URL");
             return;
         }
         
-        List<FlvConfig.FlvUrl> flatUrls = flvConfig.getFlatUrls();
-        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<StreamState> states = stateList;
+        List<CompletableFuture<Void>> futures = new ArrayList<>(states.size());
+        List<StreamState> dispatched = new ArrayList<>(states.size());
+        List<ProbeDeadline> deadlines = new ArrayList<>(states.size());
+        long startNanos = System.nanoTime();
+        // 本轮所有检测共用一个排队截止时间，检测预算从各自开始执行时计算
+        long queueDeadlineNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(queueDeadlineMs);
         
-        // 并发执行所有检测任务
-        for (FlvConfig.FlvUrl flvUrl : flatUrls) {
-            CompletableFuture<Void> future = CompletableFuture.runAsync(() -> checkSingleStream(flvUrl), executorService);
-            futures.add(future);
+        // 并发执行所有检测任务，自适应间隔未到的流本轮跳过
+        for (StreamState state : states) {
+            if (adaptiveInterval != null && !isDue(state, startTime)) {
+                continue;
+            }
+            ProbeDeadline deadline = new ProbeDeadline(queueDeadlineNanos, probeDeadlineMs);
+            dispatched.add(state);
+            deadlines.add(deadline);
+            futures.add(dispatchCheck(state, deadline));
         }
         
-        // 等待所有检测任务完成
+        // 等待所有检测任务完成，最多等到排队截止时间
+        CompletableFuture<Void> allFutures = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
         try {
-            CompletableFuture<Void> allFutures = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
-            allFutures.get(checkTimeout * 2L, TimeUnit.MILLISECONDS); // 设置总超时时间为单个检测超时的2倍
+            try {
+                allFutures.get(Math.max(1, queueDeadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // 还在排队的检测不再发起，状态记为未知；已经开始的检测在各自的截止时间内结束，再多等一个检测预算
+                int skipped = skipQueued(dispatched, deadlines);
+                if (skipped > 0) {
+                    cycleOverruns.increment();
+                    logger.warn("本轮有 {} 个FLV流检测排队超过 {}ms 未开始执行，已跳过并记为状态未知，应增加 threads 或改用 async 执行方式",
+                            skipped, queueDeadlineMs);
+                }
+                try {
+                    allFutures.get(probeDeadlineMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException stuck) {
+                    int cancelled = cancelUnfinished(dispatched, deadlines, startNanos);
+                    logger.warn("本轮有 {} 个FLV流检测超过 {}ms 仍未结束，已取消并记为超时", cancelled, probeDeadlineMs);
+                }
+            }
             
             // 统计检测结果
             long endTime = System.currentTimeMillis();
             long totalTime = endTime - startTime;
-            logCheckSummary(flatUrls, totalTime);
+            logCheckSummary(states, totalTime);
             
-        } catch (TimeoutException e) {
-            logger.warn("部分FLV流检测超时");
-            logCheckSummary(flatUrls, System.currentTimeMillis() - startTime);
         } catch (Exception e) {
             logger.error("FLV流检测过程中发生异常: {}", e.getMessage());
-            logCheckSummary(flatUrls, System.currentTimeMillis() - startTime);
+            logCheckSummary(states, System.currentTimeMillis() - startTime);
+        } finally {
+            cycleDuration.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    // 排队截止时间到达后跳过还没有开始执行的检测，排队中的异步请求一并取消；排队积压是本服务的问题，不代表流异常
+    private int skipQueued(List<StreamState> dispatched, List<ProbeDeadline> deadlines) {
+        int skipped = 0;
+        for (int i = 0; i < deadlines.size(); i++) {
+            ProbeDeadline deadline = deadlines.get(i);
+            if (deadline.trySkip()) {
+                deadline.cancel();
+                recordSkipped(dispatched.get(i));
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+    
+    // 已经开始的检测超过自身截止时间仍未结束时取消，直接记录超时结果，之后检测线程的结果会被丢弃
+    private int cancelUnfinished(List<StreamState> dispatched, List<ProbeDeadline> deadlines, long startNanos) {
+        int cancelled = 0;
+        for (int i = 0; i < deadlines.size(); i++) {
+            ProbeDeadline deadline = deadlines.get(i);
+            if (deadline.tryFinish()) {
+                deadline.cancel();
+                probeTimeouts.increment();
+                recordResult(dispatched.get(i), ProbeDeadline.timeoutResult(), startNanos);
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+    
+    // 距上次检测已达到自适应间隔，留半个轮次的余量，避免因检测耗时的抖动多等一轮
+    private boolean isDue(StreamState state, long now) {
+        long last = state.getLastCheckMillis();
+        return last == 0 || now - last >= state.getAdaptive().getIntervalMs() - checkInterval / 2;
+    }
+    
+    // 时间轮调度的单个检测，排队截止时间从提交时开始计算
+    private CompletableFuture<Void> dispatchCheck(StreamState state) {
+        return dispatchCheck(state, ProbeDeadline.after(queueDeadlineMs, probeDeadlineMs));
+    }
+    
+    // 按执行方式提交单个流的检测，立即返回
+    private CompletableFuture<Void> dispatchCheck(StreamState state, ProbeDeadline deadline) {
+        if (isAsyncMode()) {
+            return checkSingleStreamAsync(state, deadline);
+        } else if (isVirtualMode()) {
+            return checkSingleStreamVirtual(state, deadline);
+        } else {
+            return CompletableFuture.runAsync(() -> checkSingleStream(state, deadline), executorService);
+        }
+    }
+    
+    private void logRollingSummary() {
+        if (stateList.isEmpty()) {
+            logger.warn("没有配置FLV流URL");
+            return;
         }
+        
+        long now = System.currentTimeMillis();
+        long windowMs = now - windowStart;
+        long checks = windowChecks.sumThenReset();
+        long failures = windowFailures.sumThenReset();
+        windowStart = now;
+        
+        logger.info("=== 最近{}ms 完成检测 {} 次，失败 {} 次 ===", windowMs, checks, failures);
+        logCheckSummary(stateList, windowMs);
     }
     
-    private void logCheckSummary(List<FlvConfig.FlvUrl> flatUrls, long totalTime) {
-        int totalStreams = flatUrls.size();
+    private void logCheckSummary(List<StreamState> states, long totalTime) {
+        int totalStreams = states.size();
         int healthyStreams = 0;
         int unhealthyStreams = 0;
         Map<String, Integer> projectStats = new ConcurrentHashMap<>();
         Map<String, Integer> projectHealthy = new ConcurrentHashMap<>();
         
         // 统计各项目的流状态
-        for (FlvConfig.FlvUrl flvUrl : flatUrls) {
-            String project = flvUrl.getProject();
-            String streamName = flvUrl.getName();
+        for (StreamState state : states) {
+            String project = state.getProject();
             
             projectStats.merge(project, 1, Integer::sum);
             
-            Double status = streamStatus.get(streamName);
-            if (status != null && status == 1.0) {
+            if (state.isHealthy()) {
                 healthyStreams++;
                 projectHealthy.merge(project, 1, Integer::sum);
             } else {
@@ -233,6 +959,8 @@ public class FlvCheckService {
         logger.info("=== FLV流检测完成 ===");
         logger.info("检测耗时: {}ms", totalTime);
         logger.info("总流数: {}, 正常: {}, 异常: {}", totalStreams, healthyStreams, unhealthyStreams);
+        long[] events = eventLog.takeWindowCounts();
+        logger.info("状态变化: 变为异常 {} 次, 恢复 {} 次, 未输出的重复失败 {} 次", events[0], events[1], events[2]);
         
         // 输出各项目统计
         for (Map.Entry<String, Integer> entry : projectStats.entrySet()) {
@@ -246,154 +974,380 @@ public class FlvCheckService {
                        project, total, healthy, unhealthy, String.format("%.1f", successRate));
         }
         
-        // 如果有异常流，列出详细信息
-        if (unhealthyStreams > 0) {
-            logger.warn("异常流详情:");
-            for (FlvConfig.FlvUrl flvUrl : flatUrls) {
-                String streamName = flvUrl.getName();
-                Double status = streamStatus.get(streamName);
-                if (status == null || status == 0.0) {
-                    logger.warn("  - {} ({}): {}", streamName, flvUrl.getProject(), flvUrl.getUrl());
+        // 如果有异常流，列出部分详细信息，完整列表见 /api/status
+        if (unhealthyStreams > 0 && logSummaryDetails > 0) {
+            StringBuilder details = new StringBuilder();
+            int listed = 0;
+            for (StreamState state : states) {
+                if (!state.isHealthy() && listed < logSummaryDetails) {
+                    FlvConfig.FlvUrl flvUrl = state.getFlvUrl();
+                    details.append("\n  - ").append(flvUrl.getName()).append(" (").append(flvUrl.getProject()).append("): ").append(flvUrl.getUrl());
+                    listed++;
                 }
             }
+            if (unhealthyStreams > listed) {
+                details.append("\n  ... 其余 ").append(unhealthyStreams - listed).append(" 个见 /api/status");
+            }
+            logger.warn("异常流详情:{}", details);
         }
         
         logger.info("=== 检测轮次结束 ===");
     }
     
-    private void checkSingleStream(FlvConfig.FlvUrl flvUrl) {
-        String streamName = flvUrl.getName();
-        String streamUrl = flvUrl.getUrl();
-        String project = flvUrl.getProject();
+    private void checkSingleStream(StreamState state, ProbeDeadline deadline) {
+        String streamName = state.getName();
+        
+        long startNanos = System.nanoTime();
+        
+        FlvProbeResult result;
+        if (!deadline.start()) {
+            // 排队期间已超过排队截止时间，不再发起请求
+            result = ProbeDeadline.timeoutResult();
+        } else {
+            try {
+                result = checkFlvStreamWithRetry(state, deadline);
+            } catch (Exception e) {
+                // 网络和解析错误已在 checkFlvStreamWithRetry 内转换为失败结果，走到这里的是程序错误，保留堆栈
+                logger.error("检测FLV流 {} 时发生异常: {}，响应时间设为0", streamName, e.getMessage(), e);
+                result = new FlvProbeResult();
+                result.setError(e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+        finishCheck(state, deadline, result, startNanos);
+    }
+    
+    // 没有开始执行的检测记为未知；截止时间已到且检测没有成功时统一记为超时；调度方已记录过的检测直接丢弃
+    private void finishCheck(StreamState state, ProbeDeadline deadline, FlvProbeResult result, long startNanos) {
+        if (!deadline.tryFinish()) {
+            return;
+        }
+        if (!deadline.isStarted()) {
+            recordSkipped(state);
+            return;
+        }
+        if (!result.isHealthy() && deadline.isExpired()) {
+            probeTimeouts.increment();
+            result = ProbeDeadline.timeoutResult();
+        }
+        recordResult(state, result, startNanos);
+    }
+    
+    private CompletableFuture<Void> checkSingleStreamVirtual(StreamState state, ProbeDeadline deadline) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        // 线程名带上流名称，方便在线程dump中定位
+        VirtualThreads.start("flv-check-" + state.getName(), () -> {
+            try {
+                // 虚拟线程上阻塞等待许可代价很低，调度循环本身不会被阻塞；最多等到截止时间
+                if (virtualPermits.tryAcquire(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS)) {
+                    try {
+                        checkSingleStream(state, deadline);
+                    } finally {
+                        virtualPermits.release();
+                    }
+                } else {
+                    finishCheck(state, deadline, ProbeDeadline.timeoutResult(), System.nanoTime());
+                }
+                future.complete(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+    
+    private CompletableFuture<Void> checkSingleStreamAsync(StreamState state, ProbeDeadline deadline) {
+        String streamName = state.getName();
         
-        Timer.Sample sample = Timer.start(meterRegistry);
+        long startNanos = System.nanoTime();
         
-        // 带项目标签的计数器
-        Counter.builder("flv_checks_total")
-                .description("Total number of FLV checks performed")
-                .tag("project", project)
-                .register(meterRegistry)
-                .increment();
+        return asyncProbeEngine.probe(state, buildProbeRequest(state), deadline)
+                .handle((result, error) -> {
+                    if (error != null) {
+                        logger.error("检测FLV流 {} 时发生异常: {}，响应时间设为0", streamName, error.getMessage(), error);
+                        result = new FlvProbeResult();
+                        result.setError(error.getClass().getSimpleName() + ": " + error.getMessage());
+                    }
+                    finishCheck(state, deadline, result, startNanos);
+                    return null;
+                });
+    }
+    
+    private void recordResult(StreamState state, FlvProbeResult result, long startNanos) {
+        if (state.isRemoved()) {
+            // 检测期间流已被移除，指标已删除，结果直接丢弃
+            logger.debug("FLV流 {} 已从配置中移除，丢弃检测结果", state.getName());
+            return;
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+        // 第一次检测之前的状态视为未知
+        double previous = state.getLastCheckMillis() == 0 ? StreamState.STATUS_UNKNOWN : state.getStatus();
         
+        state.recordStart();
+        windowChecks.increment();
+        if (result.getFirstTagNanos() > 0) {
+            state.recordPhase(ProbePhase.FIRST_TAG, result.getFirstTagNanos());
+        }
+        if (result.isHealthy()) {
+            // 成功的流：记录状态为1，记录实际响应时间
+            // 响应时间截止到拿到关键帧和元数据，内容指纹和时间戳分析额外读取的数据不计入
+            long responseNanos = result.getValidatedAtNanos() > 0 ? result.getValidatedAtNanos() - startNanos : durationNanos;
+            double responseTimeMs = TimeUnit.NANOSECONDS.toMillis(responseNanos);
+            state.recordSuccess(responseTimeMs, deepCheckEnabled ? result : null, durationNanos);
+            if (journal != null) {
+                journal.append(state, state.getLastCheckMillis(), true, responseTimeMs);
+            }
+            logger.debug("FLV流 {} 检测成功，响应时间: {}ms", state.getName(), responseTimeMs);
+            if (sustainedExecutor != null) {
+                submitSustainedProbe(state);
+            }
+        } else {
+            // 失败的流：记录状态为0，响应时间强制设为0
+            windowFailures.increment();
+            state.recordFailure(durationNanos);
+            if (journal != null) {
+                journal.append(state, state.getLastCheckMillis(), false, TimeUnit.NANOSECONDS.toMillis(durationNanos));
+            }
+            logger.debug("FLV流 {} 检测失败，已重试{}次，响应时间设为0: {}", state.getName(), maxRetries, result);
+        }
+        eventLog.onResult(state, previous, result);
+        AdaptiveInterval.Tracker tracker = state.getAdaptive();
+        if (tracker != null) {
+            long next = tracker.update(result.isHealthy(), state.getResponseTimeMs());
+            if (streamScheduler != null) {
+                // 间隔未变时不会重新调度
+                streamScheduler.schedule(state, next);
+            }
+        }
+        StatusListener listener = statusListener;
+        if (listener != null) {
+            listener.onResult(state);
+        }
+    }
+    
+    // 检测没有拿到线程就超过了排队截止时间：不计入检测次数，状态记为未知，由 flv_check_timeouts_total{stage="queued"} 统计
+    private void recordSkipped(StreamState state) {
+        probeSkipped.increment();
+        if (state.isRemoved()) {
+            return;
+        }
+        state.markUnknown();
+        StatusListener listener = statusListener;
+        if (listener != null) {
+            listener.onResult(state);
+        }
+    }
+    
+    // 只对刚检测成功的流发起，距上次持续读取不足间隔或线程已满时跳过
+    private void submitSustainedProbe(StreamState state) {
+        if (!state.tryStartSustained(System.currentTimeMillis(), sustainedIntervalMs)) {
+            return;
+        }
         try {
-            long startTime = System.currentTimeMillis();
-            boolean isHealthy = checkFlvStreamWithRetry(streamUrl, streamName);
-            long endTime = System.currentTimeMillis();
-            
-            if (isHealthy) {
-                // 成功的流：记录状态为1，记录实际响应时间
-                double responseTimeMs = endTime - startTime;
-                streamStatus.put(streamName, 1.0);
-                responseTime.put(streamName, responseTimeMs);
-                Counter.builder("flv_checks_successful_total")
-                        .description("Total number of successful FLV checks")
-                        .tag("project", project)
-                        .register(meterRegistry)
-                        .increment();
-                logger.debug("FLV流 {} 检测成功，响应时间: {}ms", streamName, responseTimeMs);
+            sustainedExecutor.execute(() -> runSustainedProbe(state));
+        } catch (RejectedExecutionException e) {
+            state.finishSustained(false);
+            logger.debug("持续读取队列已满，FLV流 {} 本次跳过", state.getName());
+        }
+    }
+    
+    private void runSustainedProbe(StreamState state) {
+        String streamName = state.getName();
+        // 不带Range，读取完整的直播流
+        Request request = buildProbeRequest(state).newBuilder()
+                .removeHeader("Range")
+                .build();
+        try (Response response = sustainedClient.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                logger.warn("FLV流 {} 持续读取失败，响应码: {}", streamName, response.code());
+                return;
+            }
+            FlvThroughputResult result = sustainedReaders.get().read(body.source(), sustainedWindowMs);
+            if (state.isRemoved()) {
+                return;
+            }
+            if (!result.isMediaSeen()) {
+                logger.warn("FLV流 {} 持续读取未收到音视频数据: {}", streamName, result);
+                return;
+            }
+            state.recordSustained(result);
+            if (result.getStallCount() > 0 || result.getError() != null) {
+                logger.warn("FLV流 {} 持续读取异常: {}", streamName, result);
             } else {
-                // 失败的流：记录状态为0，响应时间强制设为0
-                streamStatus.put(streamName, 0.0);
-                responseTime.put(streamName, 0.0);
-                Counter.builder("flv_checks_failed_total")
-                        .description("Total number of failed FLV checks")
-                        .tag("project", project)
-                        .register(meterRegistry)
-                        .increment();
-                logger.warn("FLV流 {} 检测失败，已重试{}次，响应时间设为0", streamName, maxRetries);
+                logger.debug("FLV流 {} 持续读取完成: {}", streamName, result);
             }
-            
-        } catch (Exception e) {
-            // 异常的流：记录状态为0，响应时间强制设为0
-            streamStatus.put(streamName, 0.0);
-            responseTime.put(streamName, 0.0);
-            Counter.builder("flv_checks_failed_total")
-                    .description("Total number of failed FLV checks")
-                    .tag("project", project)
-                    .register(meterRegistry)
-                    .increment();
-            logger.error("检测FLV流 {} 时发生异常: {}，响应时间设为0", streamName, e.getMessage());
+        } catch (IOException e) {
+            logger.warn("FLV流 {} 持续读取异常: {} - {}", streamName, e.getClass().getSimpleName(), e.getMessage());
         } finally {
-            sample.stop(Timer.builder("flv_check_duration")
-                    .description("Time taken to check FLV stream")
-                    .tag("stream_name", streamName)
-                    .tag("project", project)
-                    .register(meterRegistry));
+            state.finishSustained(true);
         }
     }
     
-    private boolean checkFlvStreamWithRetry(String streamUrl, String streamName) {
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
+    private FlvProbeResult checkFlvStreamWithRetry(StreamState state, ProbeDeadline deadline) {
+        String streamName = state.getName();
+        String host = HostCircuitBreakers.hostKey(buildProbeRequest(state).url());
+        if (circuitBreakers != null && !circuitBreakers.tryAcquire(host)) {
+            // 源站熔断中，直接判定失败，不占用线程等待重试
+            logger.debug("FLV流 {} 所在源站 {} 熔断中，跳过检测", streamName, host);
+            return HostCircuitBreakers.openResult(host);
+        }
+        FlvProbeResult result = null;
+        for (int attempt = 1; attempt <= maxRetries && !state.isRemoved() && !deadline.isExpired(); attempt++) {
+            Request request = buildProbeRequest(state);
+            
             try {
-                boolean result = checkFlvStream(streamUrl);
-                if (result) {
-                    if (attempt > 1) {
-                        logger.info("FLV流 {} 在第{}次重试后检测成功", streamName, attempt);
-                    }
-                    return true;
+                result = checkFlvStream(state.getFlvUrl().getUrl(), request, deadline);
+            } catch (Exception e) {
+                result = new FlvProbeResult();
+                result.setError(e.getClass().getSimpleName() + ": " + e.getMessage());
+                logger.debug("FLV流 {} 第{}次检测异常: {} - {}", streamName, attempt, e.getClass().getSimpleName(), e.getMessage());
+            }
+            
+            if (result.isHealthy()) {
+                if (attempt > 1) {
+                    logger.debug("FLV流 {} 在第{}次重试后检测成功", streamName, attempt);
                 }
-                
-                if (attempt < maxRetries) {
-                    logger.warn("FLV流 {} 第{}次检测失败，准备重试", streamName, attempt);
-                    // 重试前等待一小段时间，避免立即重试
-                    Thread.sleep(1000);
+                break;
+            }
+            
+            if (attempt < maxRetries) {
+                // 重试间隔按指数退避并加随机抖动，避免同一源站的流同时重试
+                long delayMs = HostCircuitBreakers.backoffDelay(retryDelayMs, retryMaxDelayMs, attempt - 1);
+                if (delayMs >= deadline.remainingMillis()) {
+                    // 等待结束时已超过截止时间，不再重试
+                    break;
                 }
-            } catch (Exception e) {
-                logger.error("FLV流 {} 第{}次检测异常: {} - {}", streamName, attempt, e.getClass().getSimpleName(), e.getMessage());
-                if (attempt < maxRetries) {
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
+                logger.debug("FLV流 {} 第{}次检测失败，准备重试", streamName, attempt);
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
                 }
             }
         }
         
-        return false;
+        if (circuitBreakers != null) {
+            // 整个检测只报告一次最终结果
+            circuitBreakers.complete(host, result, state.isRemoved() || deadline.isAborted());
+        }
+        if (result == null) {
+            result = new FlvProbeResult();
+            result.setError("未执行检测");
+        }
+        return result;
+    }
+    
+    // deadline 为null时使用客户端配置的超时
+    private FlvProbeResult checkFlvStream(String streamUrl, Request request, ProbeDeadline deadline) {
+        long startNanos = System.nanoTime();
+        Call call = originClients.newCall(request);
+        if (deadline != null) {
+            deadline.attach(call);
+        }
+        try (Response response = call.execute()) {
+            return readProbeResponse(streamUrl, response, startNanos);
+        } catch (IOException e) {
+            logger.debug("检测FLV流网络异常 {} - {}: {}", streamUrl, e.getClass().getSimpleName(), e.getMessage());
+            FlvProbeResult result = new FlvProbeResult();
+            result.setError(e.getClass().getSimpleName() + ": " + e.getMessage());
+            result.setHealthy(false);
+            return result;
+        }
+    }
+    
+    // 请求以流名称作为tag，流被移除时据此取消未完成的请求
+    private Request buildProbeRequest(StreamState state) {
+        return buildProbeRequest(state.getFlvUrl().getUrl()).newBuilder()
+                .tag(String.class, state.getName())
+                .build();
+    }
+    
+    // 按需探测URL：和定时检测使用同一个客户端和解析逻辑，不记录指标，也不经过熔断；重定向后的地址同样要在 targets 中
+    FlvProbeResult probeUrl(String url, Map<String, String> headers, ProbeTargets targets) {
+        Request.Builder builder = buildProbeRequest(url).newBuilder()
+                .tag(ProbeTargets.class, targets);
+        headers.forEach(builder::header);
+        return checkFlvStream(url, builder.build(), null);
+    }
+    
+    boolean isAggregateMetrics() {
+        return "aggregate".equalsIgnoreCase(metricsMode);
+    }
+    
+    private boolean isFingerprintEnabled() {
+        return deepCheckEnabled && fingerprintEnabled && fingerprintTags > 0;
     }
     
-    private boolean checkFlvStream(String streamUrl) {
-        Request request = new Request.Builder()
+    private boolean isTimingEnabled() {
+        return deepCheckEnabled && timingEnabled;
+    }
+    
+    boolean isDeepCheckEnabled() {
+        return deepCheckEnabled;
+    }
+    
+    private Request buildProbeRequest(String streamUrl) {
+        // 深度检测时按读取预算请求数据，否则只请求前1KB数据
+        long rangeEnd = deepCheckEnabled ? deepCheckMaxBytes - 1 : 1023;
+        return new Request.Builder()
                 .url(streamUrl)
                 .get() // 改为GET请求，读取少量数据
                 .addHeader("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
                 .addHeader("Accept", "*/*")
-                .addHeader("Range", "bytes=0-1023") // 只请求前1KB数据
+                .addHeader("Range", "bytes=0-" + rangeEnd)
                 .build();
+    }
+    
+    // 同步和异步检测共用的响应处理逻辑
+    private FlvProbeResult readProbeResponse(String streamUrl, Response response, long startNanos) throws IOException {
+        FlvProbeResult result = new FlvProbeResult();
+        int responseCode = response.code();
+        String contentType = response.header("Content-Type");
+        result.setHttpStatus(responseCode);
         
-        try (Response response = httpClient.newCall(request).execute()) {
-            int responseCode = response.code();
-            String contentType = response.header("Content-Type");
-            
-            // 读取少量数据验证连接
-            if (response.body() != null) {
-                byte[] data = response.body().bytes();
+        // 200或206状态码都认为成功 (206是Range请求的正常响应)
+        boolean isValid = responseCode == 200 || responseCode == 206;
+        
+        ResponseBody body = response.body();
+        if (isValid && body != null) {
+            if (deepCheckEnabled) {
+                // 直接从响应流增量解析FLV头和Tag，拿到关键帧和元数据后立即停止
+                new FlvTagParser(isFingerprintEnabled() ? fingerprintTags : 0, isTimingEnabled(), timingJumpThresholdMs)
+                        .parse(body.source(), deepCheckMaxBytes, startNanos, result);
+                isValid = result.isValid();
+                logger.debug("检测FLV流 {} - 响应码: {}, Content-Type: {}, {}", 
+                           streamUrl, responseCode, contentType, result);
+            } else {
+                // 读取少量数据验证连接
+                byte[] data = body.bytes();
                 logger.debug("检测FLV流 {} - 响应码: {}, Content-Type: {}, 数据长度: {}", 
                            streamUrl, responseCode, contentType, data.length);
             }
-            
-            // 200或206状态码都认为成功 (206是Range请求的正常响应)
-            boolean isValid = responseCode == 200 || responseCode == 206;
-            
-            if (!isValid) {
-                logger.error("FLV流检测失败 {} - 响应码: {}, Content-Type: {}", streamUrl, responseCode, contentType);
-            } else {
-                logger.info("FLV流检测成功 {} - 响应码: {}", streamUrl, responseCode);
-            }
-            
-            return isValid;
-            
-        } catch (IOException e) {
-            logger.error("检测FLV流网络异常 {} - {}: {}", streamUrl, e.getClass().getSimpleName(), e.getMessage());
-            return false;
         }
+        
+        result.setHealthy(isValid);
+        if (!isValid && result.getError() == null) {
+            result.setError("HTTP " + responseCode);
+        }
+        // 检测路径上只输出DEBUG日志，状态变化和持续异常由 ProbeEventLog 在后台输出
+        if (!isValid) {
+            logger.debug("FLV流检测失败 {} - 响应码: {}, Content-Type: {}, 原因: {}", streamUrl, responseCode, contentType, result.getError());
+        }
+        
+        return result;
     }
     
     // 应用关闭时清理资源
     @PreDestroy
     public void destroy() {
+        if (streamScheduler != null) {
+            streamScheduler.stop();
+        }
+        
         if (executorService != null && !executorService.isShutdown()) {
             logger.info("关闭FLV检测线程池");
             executorService.shutdown();
@@ -407,6 +1361,22 @@ public class FlvCheckService {
             }
         }
         
+        if (retryTimer != null) {
+            retryTimer.shutdownNow();
+        }
+        
+        if (sustainedExecutor != null) {
+            sustainedExecutor.shutdownNow();
+        }
+        
+        if (journal != null) {
+            journal.close();
+        }
+        
+        if (eventLog != null) {
+            eventLog.stop();
+        }
+        
         if (httpClient != null) {
             logger.info("关闭HTTP客户端");
             httpClient.dispatcher().executorService().shutdown();
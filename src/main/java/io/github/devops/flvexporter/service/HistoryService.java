@@ -0,0 +1,105 @@
+package io.github.devops.flvexporter.service;
+
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 基于每个流的检测历史计算可用率和延迟分位数，窗口内的记录逐条累加到固定大小的分桶里，
+// 不排序、不复制样本，查询开销只和窗口内的记录数有关
+@Service
+public class HistoryService {
+
+    private final FlvCheckService flvCheckService;
+
+    public HistoryService(FlvCheckService flvCheckService) {
+        this.flvCheckService = flvCheckService;
+    }
+
+    // 流不存在或未开启历史记录时返回null
+    public Map<String, Object> getStreamHistory(String name, int limit, Duration window) {
+        StreamState state = flvCheckService.getState(name);
+        if (state == null || state.getHistory() == null) {
+            return null;
+        }
+        StreamHistory history = state.getHistory();
+        SlaStats stats = new SlaStats();
+        history.collect(System.currentTimeMillis() - window.toMillis(), stats);
+
+        List<Map<String, Object>> samples = new ArrayList<>(Math.min(limit, history.size()));
+        history.forEach(limit, (timeMillis, healthy, latencyMs) -> {
+            Map<String, Object> sample = new LinkedHashMap<>();
+            sample.put("time", timeMillis);
+            sample.put("status", healthy ? 1 : 0);
+            sample.put("latency_ms", latencyMs);
+            samples.add(sample);
+        });
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("stream_name", state.getName());
+        response.put("project", state.getProject());
+        response.put("capacity", history.capacity());
+        response.put("size", history.size());
+        response.put("window_seconds", window.getSeconds());
+        response.put("sla", toMap(stats));
+        response.put("samples", samples);
+        return response;
+    }
+
+    // 全部流或指定项目在窗口内的可用率和延迟分位数，同时给出按项目的汇总
+    public Map<String, Object> getSla(Duration window, String project) {
+        long since = System.currentTimeMillis() - window.toMillis();
+        SlaStats overall = new SlaStats();
+        Map<String, SlaStats> byProject = new LinkedHashMap<>();
+        Map<String, Integer> streamCounts = new LinkedHashMap<>();
+        int streams = 0;
+
+        for (StreamState state : flvCheckService.getStates()) {
+            StreamHistory history = state.getHistory();
+            if (history == null || (project != null && !project.equals(state.getProject()))) {
+                continue;
+            }
+            SlaStats projectStats = byProject.computeIfAbsent(state.getProject(), p -> new SlaStats());
+            history.collect(since, projectStats);
+            streamCounts.merge(state.getProject(), 1, Integer::sum);
+            streams++;
+        }
+
+        Map<String, Object> projects = new LinkedHashMap<>();
+        for (Map.Entry<String, SlaStats> entry : byProject.entrySet()) {
+            overall.merge(entry.getValue());
+            Map<String, Object> projectSla = toMap(entry.getValue());
+            projectSla.put("streams", streamCounts.get(entry.getKey()));
+            projects.put(entry.getKey(), projectSla);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("window_seconds", window.getSeconds());
+        response.put("streams", streams);
+        response.putAll(toMap(overall));
+        response.put("projects", projects);
+        return response;
+    }
+
+    private static Map<String, Object> toMap(SlaStats stats) {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", valueOrNull(stats.percentile(0.50)));
+        latency.put("p95", valueOrNull(stats.percentile(0.95)));
+        latency.put("p99", valueOrNull(stats.percentile(0.99)));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total_checks", stats.getTotal());
+        result.put("successful_checks", stats.getUp());
+        result.put("availability", valueOrNull(stats.getAvailability()));
+        result.put("latency_ms", latency);
+        return result;
+    }
+
+    // 窗口内没有数据时输出null，避免JSON中出现NaN
+    private static Double valueOrNull(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+}
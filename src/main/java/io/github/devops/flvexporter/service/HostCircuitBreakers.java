@@ -0,0 +1,170 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.flv.FlvProbeResult;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.HttpUrl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// 按源站Host划分的熔断器：同一Host的检测连续出现连接失败或5xx时熔断，一次检测(含重试)只计一次，
+// 熔断期间该Host下的流直接判定失败，不再占用线程和重试次数；
+// 到期后只放行一个试探请求，成功则恢复，失败则按指数退避延长熔断时间
+class HostCircuitBreakers {
+
+    private static final Logger logger = LoggerFactory.getLogger(HostCircuitBreakers.class);
+
+    static final int CLOSED = 0;
+    static final int HALF_OPEN = 1;
+    static final int OPEN = 2;
+
+    private final MeterRegistry meterRegistry;
+    private final int failureThreshold;
+    private final long openBaseMs;
+    private final long openMaxMs;
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    HostCircuitBreakers(MeterRegistry meterRegistry, int failureThreshold, long openBaseMs, long openMaxMs) {
+        this.meterRegistry = meterRegistry;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openBaseMs = Math.max(1, openBaseMs);
+        this.openMaxMs = Math.max(this.openBaseMs, openMaxMs);
+    }
+
+    // 熔断的粒度是源站，非默认端口视为不同源站
+    static String hostKey(HttpUrl url) {
+        if (url.port() == HttpUrl.defaultPort(url.scheme())) {
+            return url.host();
+        }
+        return url.host() + ":" + url.port();
+    }
+
+    // 连接失败或5xx说明源站本身有问题；404、内容不是FLV等只代表单个流异常，不计入熔断
+    static boolean isHostFailure(FlvProbeResult result) {
+        return !result.isHealthy() && (result.getHttpStatus() == 0 || result.getHttpStatus() >= 500);
+    }
+
+    // 每次检测开始时调用一次，返回是否允许向该Host发起请求，返回true后检测结束时必须调用 complete
+    boolean tryAcquire(String host) {
+        return breaker(host).tryAcquire(System.currentTimeMillis());
+    }
+
+    // 检测(含重试)结束后报告最终结果，没有执行任何请求时 result 为null；aborted 表示检测被取消、流被移除或超过截止时间，
+    // 这种失败是本服务主动结束的，不代表源站异常，只释放试探名额，不计入失败
+    void complete(String host, FlvProbeResult result, boolean aborted) {
+        if (result == null || (aborted && !result.isHealthy())) {
+            breaker(host).release();
+        } else {
+            record(host, result);
+        }
+    }
+
+    void record(String host, FlvProbeResult result) {
+        Breaker breaker = breaker(host);
+        if (isHostFailure(result)) {
+            breaker.onFailure(System.currentTimeMillis());
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    static FlvProbeResult openResult(String host) {
+        FlvProbeResult result = new FlvProbeResult();
+        result.setError("源站 " + host + " 熔断中");
+        result.setHealthy(false);
+        return result;
+    }
+
+    private Breaker breaker(String host) {
+        Breaker breaker = breakers.get(host);
+        if (breaker != null) {
+            return breaker;
+        }
+        return breakers.computeIfAbsent(host, h -> {
+            Breaker created = new Breaker(h);
+            Gauge.builder("flv_host_circuit_state", created, b -> b.state)
+                    .description("Per-host circuit breaker state (0=closed, 1=half-open, 2=open)")
+                    .tag("host", h)
+                    .register(meterRegistry);
+            return created;
+        });
+    }
+
+    // 指数退避加抖动：在 [delay/2, delay] 之间随机，避免大量流在同一时刻重试
+    static long backoffDelay(long baseMs, long maxMs, int exponent) {
+        long delay = baseMs << Math.min(Math.max(exponent, 0), 20);
+        delay = Math.min(Math.max(delay, 1), Math.max(baseMs, maxMs));
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    private final class Breaker {
+        private final String host;
+        private volatile int state = CLOSED;
+        private int consecutiveFailures;
+        private int openCount;
+        private long openUntil;
+        private boolean trialInFlight;
+
+        Breaker(String host) {
+            this.host = host;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            if (state == CLOSED) {
+                return true;
+            }
+            if (state == OPEN && now >= openUntil) {
+                state = HALF_OPEN;
+                trialInFlight = false;
+                logger.info("源站 {} 熔断到期，放行试探请求", host);
+            }
+            if (state == HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void release() {
+            if (state == HALF_OPEN) {
+                // 试探请求没有得出结论，允许下一次检测重新试探
+                trialInFlight = false;
+            }
+        }
+
+        synchronized void onSuccess() {
+            if (state != CLOSED) {
+                logger.info("源站 {} 试探请求成功，熔断恢复", host);
+            }
+            state = CLOSED;
+            consecutiveFailures = 0;
+            openCount = 0;
+            trialInFlight = false;
+        }
+
+        synchronized void onFailure(long now) {
+            if (state == HALF_OPEN) {
+                // 试探失败，熔断时间翻倍
+                open(now);
+                return;
+            }
+            if (state == CLOSED && ++consecutiveFailures >= failureThreshold) {
+                open(now);
+            }
+        }
+
+        private void open(long now) {
+            long openMs = backoffDelay(openBaseMs, openMaxMs, openCount);
+            openCount++;
+            openUntil = now + openMs;
+            state = OPEN;
+            trialInFlight = false;
+            logger.warn("源站 {} 连续失败，熔断 {}ms (第{}次)", host, openMs, openCount);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.config.FlvConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// 按源站选择HTTP客户端：配置了连接策略的源站使用独立的连接池和协议设置，
+// 其他源站共用默认客户端。所有客户端共享同一个Dispatcher、DNS缓存和事件监听
+class OriginClients implements Call.Factory {
+
+    private static final Logger logger = LoggerFactory.getLogger(OriginClients.class);
+
+    private final OkHttpClient defaultClient;
+    private final Map<String, OkHttpClient> clients;
+
+    OriginClients(OkHttpClient defaultClient, Map<String, FlvConfig.Origin> origins, MeterRegistry registry) {
+        this.defaultClient = defaultClient;
+        registerPoolGauges(registry, "default", defaultClient.connectionPool());
+
+        Map<String, OkHttpClient> built = new HashMap<>();
+        if (origins != null) {
+            for (Map.Entry<String, FlvConfig.Origin> entry : origins.entrySet()) {
+                String host = entry.getKey().toLowerCase(Locale.ROOT);
+                FlvConfig.Origin origin = entry.getValue();
+                if (!needsOwnClient(origin)) {
+                    continue;
+                }
+                OkHttpClient client = buildClient(origin);
+                built.put(host, client);
+                if (client.connectionPool() != defaultClient.connectionPool()) {
+                    registerPoolGauges(registry, host, client.connectionPool());
+                }
+                logger.info("源站 {} 使用独立连接策略，最大空闲连接: {}, 保持时间: {}ms, HTTP/2: {}, h2c: {}",
+                        host, origin.getMaxIdleConnections(), origin.getKeepAlive(), origin.isHttp2(), origin.isH2PriorKnowledge());
+            }
+        }
+        this.clients = Collections.unmodifiableMap(built);
+    }
+
+    private static boolean needsOwnClient(FlvConfig.Origin origin) {
+        return origin.getMaxIdleConnections() != null || origin.getKeepAlive() != null
+                || !origin.isHttp2() || origin.isH2PriorKnowledge();
+    }
+
+    private OkHttpClient buildClient(FlvConfig.Origin origin) {
+        OkHttpClient.Builder builder = defaultClient.newBuilder();
+        if (origin.getMaxIdleConnections() != null || origin.getKeepAlive() != null) {
+            int maxIdle = origin.getMaxIdleConnections() != null ? origin.getMaxIdleConnections() : 5;
+            long keepAlive = origin.getKeepAlive() != null ? origin.getKeepAlive() : 300000L;
+            builder.connectionPool(new ConnectionPool(maxIdle, keepAlive, TimeUnit.MILLISECONDS));
+        }
+        if (origin.isH2PriorKnowledge()) {
+            builder.protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+        } else if (!origin.isHttp2()) {
+            builder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
+        return builder.build();
+    }
+
+    private static void registerPoolGauges(MeterRegistry registry, String pool, ConnectionPool connectionPool) {
+        Gauge.builder("flv_connection_pool_connections", connectionPool, ConnectionPool::connectionCount)
+                .description("Connections held by the FLV probe connection pool")
+                .tag("pool", pool)
+                .tag("state", "total")
+                .register(registry);
+        Gauge.builder("flv_connection_pool_connections", connectionPool, ConnectionPool::idleConnectionCount)
+                .description("Connections held by the FLV probe connection pool")
+                .tag("pool", pool)
+                .tag("state", "idle")
+                .register(registry);
+    }
+
+    OkHttpClient clientFor(HttpUrl url) {
+        if (clients.isEmpty()) {
+            return defaultClient;
+        }
+        OkHttpClient client = clients.get(url.host());
+        return client != null ? client : defaultClient;
+    }
+
+    @Override
+    public Call newCall(Request request) {
+        return clientFor(request.url()).newCall(request);
+    }
+
+    // 请求拿到连接时是否复用了连接池中已有的连接，由事件监听统计
+    static final class PoolStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        void record(boolean reused) {
+            if (reused) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+        }
+
+        void registerMeters(MeterRegistry registry) {
+            FunctionCounter.builder("flv_connection_pool_acquired_total", hits, LongAdder::sum)
+                    .description("Connections acquired by FLV probe calls")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("flv_connection_pool_acquired_total", misses, LongAdder::sum)
+                    .description("Connections acquired by FLV probe calls")
+                    .tag("result", "miss")
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package io.github.devops.flvexporter.service;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.function.Function;
+
+// 按阶段记录单次请求的耗时：每个Call一个实例，OkHttp保证同一Call的事件顺序回调。
+// 复用连接的请求没有DNS、建连和TLS阶段，只记录实际发生的阶段；同时统计连接池命中情况
+class PhaseEventListener extends EventListener {
+
+    // 为null时只统计连接池命中
+    private final StreamState state;
+    private final OriginClients.PoolStats poolStats;
+
+    private boolean connectStarted;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestStart;
+
+    private PhaseEventListener(StreamState state, OriginClients.PoolStats poolStats) {
+        this.state = state;
+        this.poolStats = poolStats;
+    }
+
+    // 探测请求以流名称作为tag，lookup为null或找不到对应流的请求不记录阶段耗时
+    static EventListener.Factory factory(Function<String, StreamState> lookup, OriginClients.PoolStats poolStats) {
+        return call -> {
+            String streamName = call.request().tag(String.class);
+            StreamState state = streamName != null && lookup != null ? lookup.apply(streamName) : null;
+            return new PhaseEventListener(state, poolStats);
+        };
+    }
+
+    private void record(ProbePhase phase, long nanos) {
+        if (state != null) {
+            state.recordPhase(phase, nanos);
+        }
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        record(ProbePhase.DNS, System.nanoTime() - dnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = System.nanoTime();
+        secureConnectStart = 0;
+        connectStarted = true;
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureConnectStart = System.nanoTime();
+        record(ProbePhase.CONNECT, secureConnectStart - connectStart);
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        record(ProbePhase.TLS, System.nanoTime() - secureConnectStart);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        if (secureConnectStart == 0) {
+            // 明文连接，TCP建连到这里结束
+            record(ProbePhase.CONNECT, System.nanoTime() - connectStart);
+        }
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        // 拿到连接前没有新建连接，说明复用了连接池中的连接
+        poolStats.record(!connectStarted);
+        connectStarted = false;
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        requestStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        if (requestStart != 0) {
+            record(ProbePhase.TTFB, System.nanoTime() - requestStart);
+            requestStart = 0;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.flv.FlvProbeResult;
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 单次检测的截止时间，分两段：开始执行前只限制排队到什么时候，到期仍未开始的检测不发起请求；
+// 开始执行后从开始时刻计算检测预算，重试等待和HTTP请求的超时都不超过剩余时间。
+// 检测本身和调度方谁先调用 tryFinish/trySkip 谁记录结果，另一方的结果直接丢弃，不会出现超时后又写入过期结果
+final class ProbeDeadline {
+
+    static final String TIMEOUT_ERROR = "timeout: 超过检测截止时间";
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    private final long budgetNanos;
+    // 开始执行前为排队截止时间，开始后为开始时刻加检测预算
+    private volatile long deadlineNanos;
+    private final AtomicInteger phase = new AtomicInteger(QUEUED);
+    private volatile boolean started;
+    private volatile Call call;
+    private volatile boolean cancelled;
+
+    ProbeDeadline(long queueDeadlineNanos, long budgetMs) {
+        this.deadlineNanos = queueDeadlineNanos;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+    }
+
+    static ProbeDeadline after(long queueMs, long budgetMs) {
+        return new ProbeDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queueMs), budgetMs);
+    }
+
+    // 检测真正开始执行时调用(拿到线程、许可或Dispatcher的执行位置)，重复调用无副作用；
+    // 排队已超过截止时间或已被调度方跳过时返回false，此时不应再发起请求
+    boolean start() {
+        int current = phase.get();
+        if (current == RUNNING) {
+            return true;
+        }
+        if (current != QUEUED || isExpired()) {
+            return false;
+        }
+        long startDeadline = System.nanoTime() + budgetNanos;
+        if (!phase.compareAndSet(QUEUED, RUNNING)) {
+            return phase.get() == RUNNING;
+        }
+        deadlineNanos = startDeadline;
+        started = true;
+        return true;
+    }
+
+    boolean isStarted() {
+        return started;
+    }
+
+    long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+    }
+
+    boolean isExpired() {
+        return cancelled || remainingNanos() <= 0;
+    }
+
+    // 请求发出前调用：整个调用的超时设为剩余时间，OkHttp到期时自行取消；已取消时立即取消该请求。
+    // 异步请求在Dispatcher中排队时还没有开始，OkHttp的调用超时从请求开始执行时计算，这里按完整预算设置
+    void attach(Call call) {
+        long timeoutNanos = started ? remainingNanos() : budgetNanos;
+        call.timeout().timeout(Math.max(1, timeoutNanos), TimeUnit.NANOSECONDS);
+        this.call = call;
+        if (cancelled) {
+            call.cancel();
+        }
+    }
+
+    // 检测已超过截止时间，或最近一次请求被取消(截止时间到达、配置重载移除了该流)，此时的失败不代表源站异常
+    boolean isAborted() {
+        Call current = call;
+        return isExpired() || (current != null && current.isCanceled());
+    }
+
+    void cancel() {
+        cancelled = true;
+        Call current = call;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    // 调度方调用：检测还没有开始执行时把它标记为跳过，返回true的一方负责记录结果
+    boolean trySkip() {
+        return phase.compareAndSet(QUEUED, DONE);
+    }
+
+    // 返回true的一方负责记录这次检测的结果
+    boolean tryFinish() {
+        return phase.getAndSet(DONE) != DONE;
+    }
+
+    static FlvProbeResult timeoutResult() {
+        FlvProbeResult result = new FlvProbeResult();
+        result.setError(TIMEOUT_ERROR);
+        result.setHealthy(false);
+        return result;
+    }
+
+    // 异步请求以 ProbeDeadline 作为tag，请求在Dispatcher中真正开始执行时才开始计算检测预算
+    static Interceptor startOnExecute() {
+        return chain -> {
+            Request request = chain.request();
+            ProbeDeadline deadline = request.tag(ProbeDeadline.class);
+            if (deadline != null && !deadline.start()) {
+                throw new IOException("Canceled: 排队超过截止时间");
+            }
+            return chain.proceed(request);
+        };
+    }
+}
@@ -0,0 +1,183 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.flv.FlvProbeResult;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// 检测结果的事件日志：检测线程只把状态变化和限流后的失败事件放入无锁环形缓冲区，
+// 由一个后台线程取出后输出日志，检测路径上不做同步的日志I/O；缓冲区已满时直接丢弃并计数
+class ProbeEventLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProbeEventLog.class);
+
+    private static final int DOWN = 0;
+    private static final int UP = 1;
+    private static final int FAILING = 2;
+
+    private final EventRing<Event> ring;
+    private final long failureIntervalMs;
+    private final long drainIntervalNanos;
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    // 缓冲区已满丢弃的事件数，以及因限流没有输出的失败次数
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    // 后台线程已报告过的丢弃数
+    private long reportedDropped;
+
+    // 汇总窗口内的状态变化次数，每次输出汇总后清零
+    private final LongAdder windowDown = new LongAdder();
+    private final LongAdder windowUp = new LongAdder();
+    private final LongAdder windowSuppressed = new LongAdder();
+
+    ProbeEventLog(MeterRegistry meterRegistry, int capacity, long failureIntervalMs, long drainIntervalMs) {
+        this.ring = new EventRing<>(capacity);
+        this.failureIntervalMs = failureIntervalMs;
+        this.drainIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, drainIntervalMs));
+        FunctionCounter.builder("flv_log_events_dropped_total", dropped, LongAdder::sum)
+                .description("Probe log events not written, by reason (ring_full=event buffer full, rate_limited=repeated failure suppressed)")
+                .tag("reason", "ring_full")
+                .register(meterRegistry);
+        FunctionCounter.builder("flv_log_events_dropped_total", suppressed, LongAdder::sum)
+                .description("Probe log events not written, by reason (ring_full=event buffer full, rate_limited=repeated failure suppressed)")
+                .tag("reason", "rate_limited")
+                .register(meterRegistry);
+        this.drainer = new Thread(this::drainLoop, "flv-event-log");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    int capacity() {
+        return ring.capacity();
+    }
+
+    // 检测线程调用：previous 为本次结果记录前的状态(1=正常, 0=异常, -1=未知)
+    void onResult(StreamState state, double previous, FlvProbeResult result) {
+        long now = state.getLastCheckMillis();
+        if (result.isHealthy()) {
+            // 异常期间有检测因排队超时被记为未知，恢复时仍按异常结束输出
+            if (previous == 0.0 || (previous == StreamState.STATUS_UNKNOWN && state.getDownSinceMillis() > 0)) {
+                windowUp.increment();
+                publish(new Event(UP, now, state, null, state.markUp(now), 0));
+            }
+            return;
+        }
+        if (previous != 0.0) {
+            // 正常或未知变为异常，总是输出
+            state.markDown(now);
+            windowDown.increment();
+            publish(new Event(DOWN, now, state, result, previous == 1.0 ? 1 : 0, 0));
+            return;
+        }
+        int skipped = state.tryLogFailure(now, failureIntervalMs);
+        if (skipped < 0) {
+            suppressed.increment();
+            windowSuppressed.increment();
+            return;
+        }
+        publish(new Event(FAILING, now, state, result, state.getDownSinceMillis(), skipped));
+    }
+
+    private void publish(Event event) {
+        if (!ring.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    // 汇总日志调用：返回并清零窗口内的 {异常, 恢复, 抑制} 次数
+    long[] takeWindowCounts() {
+        return new long[]{windowDown.sumThenReset(), windowUp.sumThenReset(), windowSuppressed.sumThenReset()};
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(drainIntervalNanos);
+            }
+        }
+        drain();
+    }
+
+    private int drain() {
+        int count = 0;
+        Event event;
+        while ((event = ring.poll()) != null) {
+            try {
+                write(event);
+            } catch (RuntimeException e) {
+                // 日志输出异常不能让后台线程退出
+                logger.error("输出检测事件失败: {}", e.getMessage());
+            }
+            count++;
+        }
+        long total = dropped.sum();
+        if (total > reportedDropped) {
+            logger.warn("检测事件缓冲区已满(容量 {})，丢弃 {} 条事件", ring.capacity(), total - reportedDropped);
+            reportedDropped = total;
+        }
+        return count;
+    }
+
+    private void write(Event event) {
+        String name = event.state.getName();
+        String project = event.state.getProject();
+        switch (event.type) {
+            case DOWN:
+                logger.warn("FLV流 {} ({}) 状态变化 {}→DOWN: {}", name, project, event.value == 1 ? "UP" : "UNKNOWN", event.result);
+                break;
+            case UP:
+                if (event.value > 0) {
+                    logger.info("FLV流 {} ({}) 状态变化 DOWN→UP，持续异常 {}s", name, project, event.value / 1000);
+                } else {
+                    logger.info("FLV流 {} ({}) 状态变化 DOWN→UP", name, project);
+                }
+                break;
+            case FAILING:
+                if (event.value > 0) {
+                    logger.warn("FLV流 {} ({}) 持续异常 {}s，期间另有 {} 次失败未输出: {}",
+                            name, project, (event.timeMillis - event.value) / 1000, event.skipped, event.result);
+                } else {
+                    logger.warn("FLV流 {} ({}) 仍然异常，期间另有 {} 次失败未输出: {}", name, project, event.skipped, event.result);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    void stop() {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(TimeUnit.NANOSECONDS.toMillis(drainIntervalNanos) + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Event {
+        final int type;
+        final long timeMillis;
+        final StreamState state;
+        final FlvProbeResult result;
+        // DOWN: 1=之前正常, 0=之前未知; UP: 异常持续的毫秒数; FAILING: 本次异常开始的时间
+        final long value;
+        final int skipped;
+
+        Event(int type, long timeMillis, StreamState state, FlvProbeResult result, long value, int skipped) {
+            this.type = type;
+            this.timeMillis = timeMillis;
+            this.state = state;
+            this.result = result;
+            this.value = value;
+            this.skipped = skipped;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.devops.flvexporter.service;
+
+// 单次探测请求的各个阶段
+enum ProbePhase {
+    // DNS解析
+    DNS("dns"),
+    // TCP建连，不含TLS握手
+    CONNECT("connect"),
+    // TLS握手
+    TLS("tls"),
+    // 开始发送请求到收到响应头，即服务端处理时间加一个往返
+    TTFB("ttfb"),
+    // 从请求开始到解析出首个合法FLV Tag
+    FIRST_TAG("first_tag");
+
+    static final ProbePhase[] VALUES = values();
+
+    private final String tag;
+
+    ProbePhase(String tag) {
+        this.tag = tag;
+    }
+
+    String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,236 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.config.FlvConfig;
+import io.github.devops.flvexporter.flv.FlvProbeResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.HttpUrl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// 按需探测FLV地址，类似blackbox_exporter的 /probe：同一目标同时只发起一次探测，
+// 其他请求等待同一个结果；结果放入短时间的LRU缓存，多个Prometheus副本和临时面板共用一次探测。
+// 接口没有认证，默认关闭，开启后也只探测 allowed-hosts 中的Host，避免被用来访问内网地址
+@Service
+public class ProbeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProbeService.class);
+
+    static final String DEFAULT_MODULE = "default";
+
+    @Value("${flv.probe.enabled:false}")
+    private boolean enabled;
+    
+    // 允许探测的目标Host，逗号分隔，"*.example.com" 匹配子域名；为空时拒绝所有目标
+    @Value("${flv.probe.allowed-hosts:}")
+    private String[] allowedHosts;
+    
+    private ProbeTargets targets;
+
+    // 探测结果的缓存时间(毫秒)，模块可以单独配置
+    @Value("${flv.probe.cache-ttl:10000}")
+    private long cacheTtlMs;
+
+    // 缓存的目标数上限，超出时淘汰最久未访问的
+    @Value("${flv.probe.cache-size:1000}")
+    private int cacheSize;
+
+    // 同时进行的按需探测数上限，超出时直接拒绝
+    @Value("${flv.probe.max-concurrency:16}")
+    private int maxConcurrency;
+
+    // 合并到同一次探测的请求最多等待的时间(毫秒)
+    @Value("${flv.probe.wait-timeout:30000}")
+    private long waitTimeoutMs;
+
+    private final FlvCheckService flvCheckService;
+    private final FlvConfig flvConfig;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, CompletableFuture<Cached>> inFlight = new ConcurrentHashMap<>();
+    private Map<String, Cached> cache;
+    private Semaphore permits;
+
+    private Counter hits;
+    private Counter coalesced;
+    private Counter misses;
+    private Counter rejected;
+
+    public ProbeService(FlvCheckService flvCheckService, FlvConfig flvConfig, MeterRegistry meterRegistry) {
+        this.flvCheckService = flvCheckService;
+        this.flvConfig = flvConfig;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.targets = new ProbeTargets(allowedHosts);
+        if (enabled && targets.isEmpty()) {
+            logger.warn("按需探测已开启但未配置 flv.probe.allowed-hosts，所有目标都会被拒绝");
+        }
+        this.permits = new Semaphore(maxConcurrency);
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > cacheSize;
+            }
+        });
+        this.hits = requestCounter("hit");
+        this.coalesced = requestCounter("coalesced");
+        this.misses = requestCounter("miss");
+        this.rejected = requestCounter("rejected");
+    }
+
+    private Counter requestCounter(String result) {
+        return Counter.builder("flv_probe_requests_total")
+                .description("On-demand FLV probe requests by how they were served")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // 参数有问题时返回错误信息，否则返回null
+    public String validate(String target, String module) {
+        HttpUrl url = target != null ? HttpUrl.parse(target) : null;
+        if (url == null) {
+            return "target 必须是完整的 http/https 地址: " + target;
+        }
+        if (!targets.allows(url)) {
+            return "target 的Host不在 flv.probe.allowed-hosts 中: " + url.host();
+        }
+        if (module(module) == null) {
+            return "未配置的探测模块: " + module;
+        }
+        return null;
+    }
+
+    // 返回Prometheus文本格式的探测结果；并发探测已满时抛出 IllegalStateException，等待超时抛出 TimeoutException
+    public String probe(String target, String moduleName) throws TimeoutException {
+        FlvConfig.ProbeModule module = module(moduleName);
+        String key = moduleName + " " + target;
+        long ttl = module.getCacheTtl() != null ? module.getCacheTtl() : cacheTtlMs;
+
+        Cached cached = cache.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.completedAt < ttl) {
+            hits.increment();
+            return render(cached, true);
+        }
+
+        CompletableFuture<Cached> mine = new CompletableFuture<>();
+        CompletableFuture<Cached> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return render(await(existing), true);
+        }
+        try {
+            if (!permits.tryAcquire()) {
+                rejected.increment();
+                throw new IllegalStateException("按需探测并发已达上限: " + maxConcurrency);
+            }
+            try {
+                misses.increment();
+                Cached entry = run(target, module);
+                cache.put(key, entry);
+                mine.complete(entry);
+                return render(entry, false);
+            } finally {
+                permits.release();
+            }
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private FlvConfig.ProbeModule module(String name) {
+        FlvConfig.ProbeModule module = flvConfig.getModules().get(name);
+        if (module == null && DEFAULT_MODULE.equals(name)) {
+            module = new FlvConfig.ProbeModule();
+        }
+        return module;
+    }
+
+    private Cached run(String target, FlvConfig.ProbeModule module) {
+        long start = System.nanoTime();
+        FlvProbeResult result = null;
+        for (int attempt = 0; attempt <= module.getRetries(); attempt++) {
+            result = flvCheckService.probeUrl(target, module.getHeaders(), targets);
+            if (result.isHealthy()) {
+                break;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        logger.debug("按需探测 {} 完成，耗时: {}s, {}", target, seconds, result);
+        return new Cached(result, seconds, System.currentTimeMillis());
+    }
+
+    private Cached await(CompletableFuture<Cached> future) throws TimeoutException {
+        try {
+            return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待探测结果被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+
+    private String render(Cached entry, boolean fromCache) {
+        FlvProbeResult result = entry.result;
+        StringBuilder sb = new StringBuilder(1024);
+        gauge(sb, "probe_success", "Whether the FLV probe succeeded", result.isHealthy() ? 1 : 0);
+        gauge(sb, "probe_duration_seconds", "Duration of the FLV probe including retries in seconds", entry.durationSeconds);
+        gauge(sb, "probe_http_status_code", "HTTP status code of the FLV probe response, 0 if no response", result.getHttpStatus());
+        gauge(sb, "probe_flv_cached", "Whether the result was served from the probe cache or a coalesced probe", fromCache ? 1 : 0);
+        gauge(sb, "probe_flv_result_age_seconds", "Seconds since the served probe result was taken",
+                (System.currentTimeMillis() - entry.completedAt) / 1000.0);
+        if (flvCheckService.isDeepCheckEnabled() && result.isHealthy()) {
+            gauge(sb, "probe_flv_first_keyframe_ms", "Time from request start to first FLV video keyframe in milliseconds",
+                    result.getFirstKeyframeMs());
+            gauge(sb, "probe_flv_video_width", "Video width declared in FLV onMetaData", result.getWidth());
+            gauge(sb, "probe_flv_video_height", "Video height declared in FLV onMetaData", result.getHeight());
+            gauge(sb, "probe_flv_video_framerate", "Video framerate declared in FLV onMetaData", result.getFramerate());
+            gauge(sb, "probe_flv_bitrate_kbps", "Audio + video bitrate declared in FLV onMetaData in kbps", result.getBitrateKbps());
+            gauge(sb, "probe_flv_video_codec_id", "FLV video codec id (7=AVC, 12=HEVC, -1=unknown)", result.getVideoCodecId());
+            gauge(sb, "probe_flv_audio_codec_id", "FLV audio sound format (10=AAC, 2=MP3, -1=unknown)", result.getAudioCodecId());
+        }
+        return sb.toString();
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, double value) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(" gauge\n");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static final class Cached {
+        final FlvProbeResult result;
+        final double durationSeconds;
+        final long completedAt;
+
+        Cached(FlvProbeResult result, double durationSeconds, long completedAt) {
+            this.result = result;
+            this.durationSeconds = durationSeconds;
+            this.completedAt = completedAt;
+        }
+    }
+}
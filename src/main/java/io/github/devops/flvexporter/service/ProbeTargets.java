@@ -0,0 +1,68 @@
+package io.github.devops.flvexporter.service;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// /probe 允许探测的目标Host：精确匹配，或 "*.example.com" 匹配其所有子域名；列表为空时不允许任何目标。
+// 探测请求以它作为tag，重定向后的每一跳都由网络拦截器再检查一次，避免经允许的源站跳转到内网地址
+final class ProbeTargets {
+
+    private final Set<String> hosts;
+    private final List<String> suffixes;
+
+    ProbeTargets(String[] patterns) {
+        Set<String> exact = new HashSet<>();
+        List<String> wildcard = new ArrayList<>();
+        if (patterns != null) {
+            for (String pattern : patterns) {
+                String host = pattern.trim().toLowerCase(Locale.ROOT);
+                if (host.startsWith("*.") && host.length() > 2) {
+                    wildcard.add(host.substring(1));
+                } else if (!host.isEmpty()) {
+                    exact.add(host);
+                }
+            }
+        }
+        this.hosts = Collections.unmodifiableSet(exact);
+        this.suffixes = Collections.unmodifiableList(wildcard);
+    }
+
+    boolean isEmpty() {
+        return hosts.isEmpty() && suffixes.isEmpty();
+    }
+
+    boolean allows(HttpUrl url) {
+        // HttpUrl 已把Host转成小写
+        String host = url.host();
+        if (hosts.contains(host)) {
+            return true;
+        }
+        for (String suffix : suffixes) {
+            if (host.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 只检查带 ProbeTargets tag 的请求，定时检测的请求不受影响
+    static Interceptor enforce() {
+        return chain -> {
+            Request request = chain.request();
+            ProbeTargets targets = request.tag(ProbeTargets.class);
+            if (targets != null && !targets.allows(request.url())) {
+                throw new IOException("重定向目标不在 flv.probe.allowed-hosts 中: " + request.url().host());
+            }
+            return chain.proceed(request);
+        };
+    }
+}
@@ -0,0 +1,180 @@
+package io.github.devops.flvexporter.service;
+
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+// 预渲染的Prometheus输出缓存：每个流的样本行在注册时渲染好，取值变化时才重新生成该行；
+// 两次重建之间的抓取直接返回缓存的字节，正在重建时其他抓取返回上一份结果而不是排队等待
+@Service
+public class PrometheusExpositionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrometheusExpositionCache.class);
+
+    // 是否开启预渲染，开启后每个流的指标只在 /metrics 输出，/actuator/prometheus 只剩项目级和全局指标
+    @Value("${flv.metrics.cache.enabled:false}")
+    private boolean enabled;
+
+    // 两次重建之间的最短间隔(毫秒)，这段时间内的抓取共用同一份结果
+    @Value("${flv.metrics.cache.min-refresh:1000}")
+    private long minRefreshMs;
+
+    private final FlvCheckService flvCheckService;
+    private final PrometheusMeterRegistry prometheusRegistry;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // 按指标名分组，同名样本共用一段HELP/TYPE，缓冲区在重建之间复用
+    private final Map<String, Family> families = new LinkedHashMap<>();
+    private volatile Exposition current;
+
+    public PrometheusExpositionCache(FlvCheckService flvCheckService, PrometheusMeterRegistry prometheusRegistry) {
+        this.flvCheckService = flvCheckService;
+        this.prometheusRegistry = prometheusRegistry;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Exposition get() {
+        Exposition exposition = current;
+        if (exposition != null && !exposition.isExpired(minRefreshMs)) {
+            return exposition;
+        }
+        if (exposition != null) {
+            // 已经有线程在重建，先返回上一份结果
+            if (!rebuildLock.tryLock()) {
+                return exposition;
+            }
+        } else {
+            rebuildLock.lock();
+        }
+        try {
+            exposition = current;
+            if (exposition == null || exposition.isExpired(minRefreshMs)) {
+                exposition = rebuild();
+                current = exposition;
+            }
+            return exposition;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Exposition rebuild() {
+        long start = System.nanoTime();
+        for (Family family : families.values()) {
+            family.samples.reset();
+        }
+
+        int sampleCount = 0;
+        for (StreamState state : flvCheckService.getStates()) {
+            for (StreamSample sample : state.getSamples()) {
+                Family family = families.get(sample.getFamily());
+                if (family == null) {
+                    family = new Family(sample);
+                    families.put(sample.getFamily(), family);
+                }
+                byte[] line = sample.render();
+                family.samples.write(line, 0, line.length);
+                sampleCount++;
+            }
+        }
+
+        byte[] registryText = prometheusRegistry.scrape().getBytes(StandardCharsets.UTF_8);
+        int size = registryText.length;
+        for (Iterator<Family> it = families.values().iterator(); it.hasNext(); ) {
+            Family family = it.next();
+            if (family.samples.size() == 0) {
+                // 该指标的流都已移除
+                it.remove();
+                continue;
+            }
+            size += family.header.length + family.samples.size();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        try {
+            for (Family family : families.values()) {
+                out.write(family.header);
+                family.samples.writeTo(out);
+            }
+            out.write(registryText);
+        } catch (IOException e) {
+            // ByteArrayOutputStream 不会抛出IO异常
+            throw new UncheckedIOException(e);
+        }
+
+        Exposition exposition = new Exposition(out.toByteArray());
+        logger.debug("Prometheus输出已重建，流样本数: {}, 字节数: {}, 耗时: {}ms", sampleCount, size,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return exposition;
+    }
+
+    private static final class Family {
+        final byte[] header;
+        final ByteArrayOutputStream samples = new ByteArrayOutputStream(4096);
+
+        Family(StreamSample sample) {
+            String help = sample.getDescription().replace("\\", "\\\\").replace("\n", "\\n");
+            this.header = ("# HELP " + sample.getFamily() + " " + help + "\n"
+                    + "# TYPE " + sample.getFamily() + " " + sample.getType() + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    // 一次重建的结果，gzip版本在第一次有抓取端请求压缩时生成
+    public static final class Exposition {
+        private final byte[] text;
+        private final long builtAt = System.currentTimeMillis();
+        private volatile byte[] gzipped;
+
+        private Exposition(byte[] text) {
+            this.text = text;
+        }
+
+        private boolean isExpired(long minRefreshMs) {
+            return System.currentTimeMillis() - builtAt >= minRefreshMs;
+        }
+
+        public byte[] getText() {
+            return text;
+        }
+
+        public byte[] getGzipped() {
+            byte[] result = gzipped;
+            if (result == null) {
+                synchronized (this) {
+                    result = gzipped;
+                    if (result == null) {
+                        result = gzip(text);
+                        gzipped = result;
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static byte[] gzip(byte[] data) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 8));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+                gzip.write(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package io.github.devops.flvexporter.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// 检测结果日志：每次检测结果追加一条定长记录到内存映射文件，进程重启时顺序回放，恢复每个流的最近状态和历史记录。
+// 文件用到3/4时在后台线程用内存中的历史记录重写一份新文件并原子替换，每个流只保留最近若干条，文件大小固定不增长；
+// 重写期间检测结果继续追加到当前文件，追加从不等待磁盘IO，重写完成前文件已写满时丢弃记录并计数
+final class ResultJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultJournal.class);
+
+    private static final int MAGIC = 0x464C564A; // "FLVJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    // 记录格式: 流名称哈希(8) 时间(8) 耗时毫秒(4) 状态(1) 保留(1) 校验(2)
+    static final int RECORD_SIZE = 24;
+
+    private final Path file;
+    private final int capacity;
+    private final Supplier<List<StreamState>> states;
+    private final Counter compactions;
+    private final Counter dropped;
+    private final ExecutorService compactor;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    // 追加到该位置时开始后台压缩
+    private int compactAt;
+    private boolean compacting;
+    // 本次压缩开始时的写入位置，之后追加的记录在替换文件前复制到新文件
+    private int compactFrom;
+    private boolean failed;
+    private boolean closed;
+
+    ResultJournal(Path file, long maxSize, Supplier<List<StreamState>> states, MeterRegistry registry) throws IOException {
+        this.file = file;
+        this.states = states;
+        long existing = Files.exists(file) ? Files.size(file) : 0;
+        long size = Math.max(maxSize, existing);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("结果日志文件不能超过2GB: " + size);
+        }
+        this.capacity = (int) size;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        map(file);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_SIZE) {
+            if (existing > 0) {
+                logger.warn("结果日志 {} 格式不兼容，重新创建", file);
+                clear(buffer, capacity);
+            }
+            writeHeader(buffer);
+        }
+        this.position = HEADER_SIZE;
+        updateCompactAt();
+
+        this.compactions = Counter.builder("flv_journal_compactions_total")
+                .description("Number of times the FLV result journal was compacted")
+                .register(registry);
+        this.dropped = Counter.builder("flv_journal_dropped_total")
+                .description("Number of FLV check results not written because the journal was full during compaction")
+                .register(registry);
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "flv-journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        Gauge.builder("flv_journal_used_bytes", this, journal -> journal.position)
+                .description("Bytes used in the memory-mapped FLV result journal")
+                .register(registry);
+    }
+
+    // 把日志中的记录按写入顺序回放到对应的流，返回回放的记录数；找不到流的记录忽略
+    synchronized int replay() {
+        // 开放寻址表，回放几百万条记录时避免装箱
+        List<StreamState> current = states.get();
+        int slots = Integer.highestOneBit(Math.max(16, current.size() * 2)) << 1;
+        long[] keys = new long[slots];
+        StreamState[] values = new StreamState[slots];
+        for (StreamState state : current) {
+            long key = key(state.getName());
+            int i = slot(key, slots);
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & (slots - 1);
+            }
+            keys[i] = key;
+            values[i] = state;
+        }
+        int replayed = 0;
+        int pos = HEADER_SIZE;
+        while (pos + RECORD_SIZE <= capacity) {
+            long key = buffer.getLong(pos);
+            long time = buffer.getLong(pos + 8);
+            int latency = buffer.getInt(pos + 16);
+            byte status = buffer.get(pos + 20);
+            if (time == 0 || buffer.getShort(pos + 22) != checksum(key, time, latency, status)) {
+                // 未写入的区域或进程退出时写了一半的记录
+                break;
+            }
+            int i = slot(key, slots);
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & (slots - 1);
+            }
+            StreamState state = values[i];
+            if (state != null) {
+                state.restore(time, status == 1, latency);
+                replayed++;
+            }
+            pos += RECORD_SIZE;
+        }
+        this.position = pos;
+        updateCompactAt();
+        return replayed;
+    }
+
+    synchronized void append(StreamState state, long timeMillis, boolean healthy, double latencyMs) {
+        if (failed || closed) {
+            return;
+        }
+        if (position + RECORD_SIZE > capacity) {
+            // 后台压缩完成前文件已写满，丢弃本条记录，不在检测线程上等待压缩
+            dropped.increment();
+            startCompaction();
+            return;
+        }
+        write(buffer, position, key(state.getName()), timeMillis, healthy, latencyMs);
+        position += RECORD_SIZE;
+        if (position >= compactAt) {
+            startCompaction();
+        }
+    }
+
+    // 调用方持有锁
+    private void startCompaction() {
+        if (compacting) {
+            return;
+        }
+        compacting = true;
+        compactFrom = position;
+        compactor.execute(this::compact);
+    }
+
+    // 在后台线程用每个流内存中的历史记录重写日志，每个流最多保留的条数保证压缩后至少空出一半空间。
+    // 只有替换文件时持有锁，重写和 force 期间追加不受影响
+    private void compact() {
+        long start = System.nanoTime();
+        Path tmp = file.resolveSibling(file.getFileName() + ".compact");
+        FileChannel out = null;
+        try {
+            out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer target = out.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            writeHeader(target);
+            List<StreamState> current = states.get();
+            int perStream = Math.max(1, (capacity - HEADER_SIZE) / RECORD_SIZE / 2 / Math.max(1, current.size()));
+            LastWritten written = new LastWritten(current.size());
+            int[] pos = {HEADER_SIZE};
+            for (StreamState state : current) {
+                long key = key(state.getName());
+                StreamHistory history = state.getHistory();
+                if (history == null) {
+                    if (state.getLastCheckMillis() > 0) {
+                        write(target, pos[0], key, state.getLastCheckMillis(), state.isHealthy(), state.getResponseTimeMs());
+                        written.put(key, state.getLastCheckMillis());
+                        pos[0] += RECORD_SIZE;
+                    }
+                    continue;
+                }
+                history.forEachOldestFirst(perStream, (time, healthy, latency) -> {
+                    write(target, pos[0], key, time, healthy, latency);
+                    written.put(key, time);
+                    pos[0] += RECORD_SIZE;
+                });
+            }
+            target.force();
+
+            int used;
+            synchronized (this) {
+                used = copyAppended(target, pos[0], written);
+                channel.close();
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                // 新文件直接沿用重写时的映射。旧文件的映射没有公开的释放方法，由GC回收，回收前旧文件仍占用磁盘空间
+                this.channel = out;
+                this.buffer = target;
+                this.position = used;
+                updateCompactAt();
+                this.compacting = false;
+                out = null;
+            }
+            compactions.increment();
+            logger.info("结果日志已压缩，流数: {}, 每个流保留: {}, 已用: {}字节, 耗时: {}ms", current.size(), perStream, used,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                // 压缩失败后不再写入，已有记录保持可回放
+                failed = true;
+                compacting = false;
+            }
+            logger.error("压缩结果日志 {} 失败，停止记录检测结果: {}", file, e.getMessage(), e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    logger.debug("关闭结果日志临时文件失败: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    // 调用方持有锁：把压缩开始后追加到旧文件的记录复制到新文件，返回新文件的写入位置。
+    // 历史记录中的时间只精确到秒，同一个流比已写入的最新记录晚不到1秒的记录视为已包含在重写结果中
+    private int copyAppended(ByteBuffer target, int pos, LastWritten written) {
+        for (int from = compactFrom; from + RECORD_SIZE <= position; from += RECORD_SIZE) {
+            long key = buffer.getLong(from);
+            long time = buffer.getLong(from + 8);
+            long last = written.get(key);
+            if (last != 0 && time < last + 1000) {
+                continue;
+            }
+            if (pos + RECORD_SIZE > capacity) {
+                dropped.increment();
+                continue;
+            }
+            for (int i = 0; i < RECORD_SIZE; i += 8) {
+                target.putLong(pos + i, buffer.getLong(from + i));
+            }
+            pos += RECORD_SIZE;
+        }
+        return pos;
+    }
+
+    // 剩余空间用掉3/4时开始压缩，留出的1/4供压缩期间继续追加
+    private void updateCompactAt() {
+        this.compactAt = (int) (position + (capacity - position) * 3L / 4);
+    }
+
+    void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        compactor.shutdown();
+        try {
+            // 等待进行中的压缩完成，避免关闭后再替换文件
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                buffer.force();
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("关闭结果日志失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void map(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private static void writeHeader(ByteBuffer target) {
+        target.putInt(0, MAGIC);
+        target.putInt(4, VERSION);
+        target.putInt(8, RECORD_SIZE);
+        target.putInt(12, 0);
+    }
+
+    private static void clear(ByteBuffer target, int size) {
+        for (int i = 0; i + 8 <= size; i += 8) {
+            target.putLong(i, 0L);
+        }
+    }
+
+    private static void write(ByteBuffer target, int pos, long key, long timeMillis, boolean healthy, double latencyMs) {
+        int latency = (int) Math.min(Integer.MAX_VALUE, Math.round(latencyMs));
+        byte status = (byte) (healthy ? 1 : 0);
+        target.putLong(pos, key);
+        target.putLong(pos + 8, timeMillis);
+        target.putInt(pos + 16, latency);
+        target.put(pos + 20, status);
+        target.put(pos + 21, (byte) 0);
+        // 校验最后写入，回放时校验不通过说明记录没有写完整
+        target.putShort(pos + 22, checksum(key, timeMillis, latency, status));
+    }
+
+    private static short checksum(long key, long time, int latency, byte status) {
+        long h = key * 31 + time;
+        h = h * 31 + latency;
+        h = h * 31 + status;
+        h ^= h >>> 32;
+        h ^= h >>> 16;
+        return (short) (h | 1);
+    }
+
+    private static int slot(long key, int slots) {
+        return (int) (key ^ (key >>> 32)) & (slots - 1);
+    }
+
+    // 记录中用流名称的64位哈希代替名称，保证记录定长
+    static long key(String streamName) {
+        return ShardRing.hash(streamName);
+    }
+
+    // 压缩时每个流写入的最新记录时间，开放寻址表，流数较多时避免装箱
+    private static final class LastWritten {
+        private final long[] keys;
+        private final long[] times;
+
+        LastWritten(int streams) {
+            int slots = Integer.highestOneBit(Math.max(16, streams * 2)) << 1;
+            this.keys = new long[slots];
+            this.times = new long[slots];
+        }
+
+        void put(long key, long time) {
+            int i = find(key);
+            keys[i] = key;
+            times[i] = Math.max(times[i], time);
+        }
+
+        // 没有记录时返回0
+        long get(long key) {
+            return times[find(key)];
+        }
+
+        private int find(long key) {
+            int i = slot(key, keys.length);
+            while (times[i] != 0 && keys[i] != key) {
+                i = (i + 1) & (keys.length - 1);
+            }
+            return i;
+        }
+    }
+}
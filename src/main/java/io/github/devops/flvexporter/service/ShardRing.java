@@ -0,0 +1,81 @@
+package io.github.devops.flvexporter.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+// 一致性哈希环：每个副本在环上放置若干虚拟节点，流名称哈希后顺时针找到的第一个节点即为负责的副本。
+// 只依赖副本名称，所有副本用同一份列表得到相同的分配；增加一个副本只会迁移约1/N的流
+final class ShardRing {
+
+    // 每个副本的虚拟节点数，越多分配越均匀
+    static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final List<String> peers;
+    private final long[] points;
+    private final int[] owners;
+
+    ShardRing(List<String> peers, int virtualNodes) {
+        if (peers.isEmpty()) {
+            throw new IllegalArgumentException("分片副本列表不能为空");
+        }
+        if (peers.stream().distinct().count() != peers.size()) {
+            throw new IllegalArgumentException("分片副本名称重复: " + peers);
+        }
+        this.peers = List.copyOf(peers);
+
+        long[][] nodes = new long[peers.size() * virtualNodes][];
+        for (int p = 0; p < peers.size(); p++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                nodes[p * virtualNodes + v] = new long[]{hash(peers.get(p) + "#" + v), p};
+            }
+        }
+        // 哈希相同的节点按副本下标排序后只保留第一个，保证所有副本得到相同的环
+        Arrays.sort(nodes, (x, y) -> x[0] != y[0] ? Long.compare(x[0], y[0]) : Long.compare(x[1], y[1]));
+        long[] points = new long[nodes.length];
+        int[] owners = new int[nodes.length];
+        int n = 0;
+        for (long[] node : nodes) {
+            if (n > 0 && points[n - 1] == node[0]) {
+                continue;
+            }
+            points[n] = node[0];
+            owners[n] = (int) node[1];
+            n++;
+        }
+        this.points = Arrays.copyOf(points, n);
+        this.owners = Arrays.copyOf(owners, n);
+    }
+
+    // 负责该流的副本名称
+    String ownerOf(String streamName) {
+        long h = hash(streamName);
+        int i = Arrays.binarySearch(points, h);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        if (i == points.length) {
+            i = 0;
+        }
+        return peers.get(owners[i]);
+    }
+
+    List<String> getPeers() {
+        return peers;
+    }
+
+    // FNV-1a后做一次64位混淆，分布均匀且不依赖JVM实现
+    static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.devops.flvexporter.service;
+
+// 时间窗口内的可用率和延迟分位数累加器：延迟按对数分桶计数，32ms以下精确到1ms，
+// 之上每个2的幂区间分16个桶，相对误差不超过约6%。占用固定内存，与样本数量无关
+public final class SlaStats {
+
+    private static final int LINEAR = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int BUCKETS = LINEAR + (31 - 5) * SUB_BUCKETS;
+
+    private final int[] counts = new int[BUCKETS];
+    private long total;
+    private long up;
+    private long latencyCount;
+
+    void add(boolean healthy, int latencyMs) {
+        total++;
+        if (healthy) {
+            up++;
+            // 只统计成功检测的响应时间，失败的耗时多为超时，会拉高分位数
+            counts[bucket(Math.max(0, latencyMs))]++;
+            latencyCount++;
+        }
+    }
+
+    void merge(SlaStats other) {
+        total += other.total;
+        up += other.up;
+        latencyCount += other.latencyCount;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getUp() {
+        return up;
+    }
+
+    // 窗口内没有检测时返回NaN
+    public double getAvailability() {
+        return total > 0 ? (double) up / total : Double.NaN;
+    }
+
+    // 成功检测响应时间的分位数(毫秒)，没有成功检测时返回NaN
+    public double percentile(double p) {
+        if (latencyCount == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p * latencyCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return midpoint(i);
+            }
+        }
+        return midpoint(BUCKETS - 1);
+    }
+
+    static int bucket(int value) {
+        if (value < LINEAR) {
+            return value;
+        }
+        int msb = 31 - Integer.numberOfLeadingZeros(value);
+        int sub = (value >>> (msb - 4)) & (SUB_BUCKETS - 1);
+        return LINEAR + (msb - 5) * SUB_BUCKETS + sub;
+    }
+
+    static double midpoint(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int msb = (bucket - LINEAR) / SUB_BUCKETS + 5;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        long width = 1L << (msb - 4);
+        return (SUB_BUCKETS + sub) * width + width / 2.0;
+    }
+}
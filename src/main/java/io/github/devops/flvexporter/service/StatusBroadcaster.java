@@ -0,0 +1,252 @@
+package io.github.devops.flvexporter.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 实时状态推送：检测完成的流先放入待推送队列，推送线程按固定间隔取出，
+// 把这段时间内有更新的流序列化成一条增量消息，同一份字符串发送给所有SSE订阅方。
+// 全量快照按版本缓存，版本不变时所有请求共用同一份序列化结果
+@Service
+public class StatusBroadcaster implements StatusListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatusBroadcaster.class);
+
+    private static final List<String> FIELDS = List.of("name", "project", "status", "response_time_ms", "last_check");
+
+    // 两次增量推送的间隔(毫秒)，期间同一个流多次检测只推送最新状态
+    @Value("${flv.status.push-interval:1000}")
+    private long pushIntervalMs;
+
+    // 没有增量时发送心跳的间隔(毫秒)，用于发现断开的连接
+    @Value("${flv.status.heartbeat-interval:15000}")
+    private long heartbeatIntervalMs;
+
+    // 同时订阅的最大连接数
+    @Value("${flv.status.max-subscribers:100}")
+    private int maxSubscribers;
+
+    private final FlvCheckService flvCheckService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final Queue<StreamState> pending = new ConcurrentLinkedQueue<>();
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+    private volatile boolean streamsChanged;
+    private long lastSendMillis;
+    private ScheduledExecutorService pushExecutor;
+
+    public StatusBroadcaster(FlvCheckService flvCheckService, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.flvCheckService = flvCheckService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        flvCheckService.setStatusListener(this);
+        Gauge.builder("flv_status_subscribers", subscribers, List::size)
+                .description("Number of connected live status SSE subscribers")
+                .register(meterRegistry);
+        this.pushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "flv-status-push");
+            t.setDaemon(true);
+            return t;
+        });
+        pushExecutor.scheduleWithFixedDelay(this::push, pushIntervalMs, pushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onResult(StreamState state) {
+        if (state.markDirty()) {
+            pending.add(state);
+        }
+    }
+
+    @Override
+    public void onStreamsChanged() {
+        // 先让缓存的快照失效，推送线程再通知订阅方
+        version.incrementAndGet();
+        streamsChanged = true;
+    }
+
+    // 当前全量状态的JSON，版本变化后第一次请求时重新序列化
+    public String getSnapshotJson() {
+        return currentSnapshot().json;
+    }
+
+    // 新订阅先收到一份全量快照，之后只收到增量；超过订阅上限时返回null
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        try {
+            emitter.send(SseEmitter.event().name("snapshot").data(currentSnapshot().json));
+        } catch (IOException e) {
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        long v = version.get();
+        if (current != null && current.version == v) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || current.version != v) {
+                List<StreamState> states = flvCheckService.getStates();
+                List<Object[]> rows = new ArrayList<>(states.size());
+                for (StreamState state : states) {
+                    rows.add(row(state));
+                }
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("version", v);
+                body.put("time", System.currentTimeMillis());
+                body.put("fields", FIELDS);
+                body.put("streams", rows);
+                current = new Snapshot(v, toJson(body));
+                snapshot = current;
+            }
+        }
+        return current;
+    }
+
+    private void push() {
+        try {
+            if (streamsChanged) {
+                // 流集合变化时增量无法表达删除，通知订阅方重新拉取全量
+                streamsChanged = false;
+                drainPending();
+                broadcast("reset", toJson(Map.of("version", version.get())));
+                return;
+            }
+            List<StreamState> changed = drainPending();
+            if (changed.isEmpty()) {
+                if (System.currentTimeMillis() - lastSendMillis >= heartbeatIntervalMs) {
+                    heartbeat();
+                }
+                return;
+            }
+            long v = version.incrementAndGet();
+            if (subscribers.isEmpty()) {
+                return;
+            }
+            List<Object[]> rows = new ArrayList<>(changed.size());
+            for (StreamState state : changed) {
+                rows.add(row(state));
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("version", v);
+            body.put("time", System.currentTimeMillis());
+            body.put("streams", rows);
+            broadcast("delta", toJson(body));
+        } catch (RuntimeException e) {
+            logger.warn("状态推送失败: {}", e.getMessage());
+        }
+    }
+
+    private List<StreamState> drainPending() {
+        List<StreamState> changed = new ArrayList<>();
+        StreamState state;
+        while ((state = pending.poll()) != null) {
+            state.clearDirty();
+            if (!state.isRemoved()) {
+                changed.add(state);
+            }
+        }
+        return changed;
+    }
+
+    private void broadcast(String event, String json) {
+        lastSendMillis = System.currentTimeMillis();
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(SseEmitter.event().name(event).id(Long.toString(version.get())).data(json));
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开
+                subscribers.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void heartbeat() {
+        lastSendMillis = System.currentTimeMillis();
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private static Object[] row(StreamState state) {
+        return new Object[]{state.getName(), state.getProject(), (int) state.getStatus(),
+                state.getResponseTimeMs(), state.getLastCheckMillis()};
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (pushExecutor != null) {
+            pushExecutor.shutdownNow();
+        }
+        for (SseEmitter emitter : subscribers) {
+            emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private static final class Snapshot {
+        final long version;
+        final String json;
+
+        Snapshot(long version, String json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+}
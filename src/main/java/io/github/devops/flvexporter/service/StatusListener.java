@@ -0,0 +1,11 @@
+package io.github.devops.flvexporter.service;
+
+// 检测服务的状态回调，在检测线程上调用，实现方不能阻塞
+interface StatusListener {
+
+    // 单个流完成一次检测并更新了状态
+    void onResult(StreamState state);
+
+    // 配置重新加载后流集合发生变化
+    void onStreamsChanged();
+}
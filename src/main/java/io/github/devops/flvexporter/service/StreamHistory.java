@@ -0,0 +1,95 @@
+package io.github.devops.flvexporter.service;
+
+import java.util.concurrent.TimeUnit;
+
+// 单个流最近N次检测结果的环形缓冲区：时间(相对进程启动的秒数)和耗时(毫秒)各用int数组保存，
+// 状态按位保存，每条记录占8字节加1位。写满后覆盖最旧的记录，内存不随运行时间增长
+final class StreamHistory {
+
+    private static final long BASE_MILLIS = System.currentTimeMillis();
+
+    private final int[] times;
+    private final int[] latencies;
+    private final long[] statusBits;
+
+    // 下一条写入的位置和当前记录数
+    private int next;
+    private int size;
+
+    StreamHistory(int capacity) {
+        this.times = new int[capacity];
+        this.latencies = new int[capacity];
+        this.statusBits = new long[(capacity + 63) >>> 6];
+    }
+
+    synchronized void record(long timeMillis, boolean healthy, double latencyMs) {
+        int i = next;
+        times[i] = (int) TimeUnit.MILLISECONDS.toSeconds(timeMillis - BASE_MILLIS);
+        latencies[i] = (int) Math.min(Integer.MAX_VALUE, Math.round(latencyMs));
+        if (healthy) {
+            statusBits[i >>> 6] |= 1L << i;
+        } else {
+            statusBits[i >>> 6] &= ~(1L << i);
+        }
+        next = i + 1 == times.length ? 0 : i + 1;
+        if (size < times.length) {
+            size++;
+        }
+    }
+
+    // 把 sinceMillis 之后的记录累加到 stats，从最新的记录往回扫描，遇到更早的记录即停止
+    synchronized void collect(long sinceMillis, SlaStats stats) {
+        long since = TimeUnit.MILLISECONDS.toSeconds(sinceMillis - BASE_MILLIS);
+        for (int n = 0, i = last(); n < size; n++, i = previous(i)) {
+            if (times[i] < since) {
+                break;
+            }
+            stats.add(isHealthy(i), latencies[i]);
+        }
+    }
+
+    // 按时间从新到旧回调最多 limit 条记录
+    synchronized void forEach(int limit, SampleConsumer consumer) {
+        int count = Math.min(limit, size);
+        for (int n = 0, i = last(); n < count; n++, i = previous(i)) {
+            consumer.accept(BASE_MILLIS + TimeUnit.SECONDS.toMillis(times[i]), isHealthy(i), latencies[i]);
+        }
+    }
+
+    // 按时间从旧到新回调最近的 limit 条记录
+    synchronized void forEachOldestFirst(int limit, SampleConsumer consumer) {
+        int count = Math.min(limit, size);
+        int i = next - count;
+        if (i < 0) {
+            i += times.length;
+        }
+        for (int n = 0; n < count; n++) {
+            consumer.accept(BASE_MILLIS + TimeUnit.SECONDS.toMillis(times[i]), isHealthy(i), latencies[i]);
+            i = i + 1 == times.length ? 0 : i + 1;
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    int capacity() {
+        return times.length;
+    }
+
+    private boolean isHealthy(int i) {
+        return (statusBits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private int last() {
+        return next == 0 ? times.length - 1 : next - 1;
+    }
+
+    private int previous(int i) {
+        return i == 0 ? times.length - 1 : i - 1;
+    }
+
+    interface SampleConsumer {
+        void accept(long timeMillis, boolean healthy, int latencyMs);
+    }
+}
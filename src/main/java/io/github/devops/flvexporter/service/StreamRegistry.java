@@ -0,0 +1,157 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.config.FlvConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 流注册表：根据 flv.urls 一次性构建不可变的流快照，按名称和项目建立索引，
+// 页面、接口和检测服务都读取同一份快照，不再每次重新解析URL
+@Component
+public class StreamRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamRegistry.class);
+
+    private final FlvConfig flvConfig;
+    private final MeterRegistry meterRegistry;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public StreamRegistry(FlvConfig flvConfig, MeterRegistry meterRegistry) {
+        this.flvConfig = flvConfig;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+        Gauge.builder("flv_stream_name_collisions", this, registry -> registry.getSnapshot().getCollisions().size())
+                .description("Number of configured FLV URLs whose generated stream name collided with another URL")
+                .register(meterRegistry);
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // 根据当前配置重新构建快照并原子替换
+    public Snapshot rebuild() {
+        Snapshot built = Snapshot.build(flvConfig, snapshot.getVersion() + 1);
+        for (String collision : built.getCollisions()) {
+            logger.warn("流名称冲突: {}", collision);
+        }
+        this.snapshot = built;
+        logger.info("流注册表已构建，版本: {}, 项目数: {}, 流数: {}, 名称冲突: {}",
+                built.getVersion(), built.getProjectCount(), built.size(), built.getCollisions().size());
+        return built;
+    }
+
+    public static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(0, Collections.emptyList(), Collections.emptyMap(),
+                Collections.emptyMap(), Collections.emptyList());
+
+        private final long version;
+        private final List<FlvConfig.FlvUrl> streams;
+        private final Map<String, FlvConfig.FlvUrl> byName;
+        private final Map<String, List<FlvConfig.FlvUrl>> byProject;
+        private final List<String> collisions;
+
+        private Snapshot(long version, List<FlvConfig.FlvUrl> streams, Map<String, FlvConfig.FlvUrl> byName,
+                         Map<String, List<FlvConfig.FlvUrl>> byProject, List<String> collisions) {
+            this.version = version;
+            this.streams = streams;
+            this.byName = byName;
+            this.byProject = byProject;
+            this.collisions = collisions;
+        }
+
+        static Snapshot build(FlvConfig flvConfig, long version) {
+            List<FlvConfig.FlvUrl> streams = new ArrayList<>();
+            Map<String, FlvConfig.FlvUrl> byName = new HashMap<>();
+            Map<String, List<FlvConfig.FlvUrl>> byProject = new LinkedHashMap<>();
+            List<String> collisions = new ArrayList<>();
+
+            for (FlvConfig.FlvUrl flvUrl : flvConfig.getFlatUrls()) {
+                FlvConfig.FlvUrl existing = byName.get(flvUrl.getName());
+                if (existing != null) {
+                    if (existing.getUrl().equals(flvUrl.getUrl())) {
+                        // 完全重复的URL只保留一个
+                        collisions.add(flvUrl.getName() + " 重复配置: " + flvUrl.getUrl());
+                        continue;
+                    }
+                    // 不同URL生成了相同的名称，追加序号区分，避免指标被合并
+                    String baseName = flvUrl.getName();
+                    int suffix = 2;
+                    while (byName.containsKey(baseName + "_" + suffix)) {
+                        suffix++;
+                    }
+                    String uniqueName = baseName + "_" + suffix;
+                    collisions.add(baseName + " 已被 " + existing.getUrl() + " 使用，" + flvUrl.getUrl() + " 重命名为 " + uniqueName);
+                    flvUrl = new FlvConfig.FlvUrl(uniqueName, flvUrl.getUrl(), flvUrl.getProject(), flvUrl.getDescription());
+                }
+                streams.add(flvUrl);
+                byName.put(flvUrl.getName(), flvUrl);
+                byProject.computeIfAbsent(flvUrl.getProject(), project -> new ArrayList<>()).add(flvUrl);
+            }
+
+            // 配置了但没有流的项目也保留，保持和配置一致
+            if (flvConfig.getUrls() != null) {
+                for (String project : flvConfig.getUrls().keySet()) {
+                    byProject.computeIfAbsent(project, p -> new ArrayList<>());
+                }
+            }
+            for (Map.Entry<String, List<FlvConfig.FlvUrl>> entry : byProject.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+
+            return new Snapshot(version,
+                    Collections.unmodifiableList(streams),
+                    Collections.unmodifiableMap(byName),
+                    Collections.unmodifiableMap(byProject),
+                    Collections.unmodifiableList(collisions));
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public List<FlvConfig.FlvUrl> getStreams() {
+            return streams;
+        }
+
+        public int size() {
+            return streams.size();
+        }
+
+        public FlvConfig.FlvUrl getStream(String name) {
+            return byName.get(name);
+        }
+
+        public Map<String, List<FlvConfig.FlvUrl>> getProjects() {
+            return byProject;
+        }
+
+        public List<FlvConfig.FlvUrl> getProjectStreams(String project) {
+            return byProject.getOrDefault(project, Collections.emptyList());
+        }
+
+        public int getProjectCount() {
+            return byProject.size();
+        }
+
+        public List<String> getCollisions() {
+            return collisions;
+        }
+    }
+}
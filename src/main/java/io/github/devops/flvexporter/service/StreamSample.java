@@ -0,0 +1,105 @@
+package io.github.devops.flvexporter.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.ToDoubleFunction;
+
+// 预渲染模式下单个流的一条样本：名称和标签在注册时按Prometheus文本格式渲染一次，
+// 之后只有取值变化时才重新生成这一行。只由 PrometheusExpositionCache 在持锁时调用
+final class StreamSample {
+
+    private final String family;
+    private final String description;
+    private final String type;
+    private final byte[] prefix;
+    private final StreamState state;
+    private final ToDoubleFunction<StreamState> value;
+
+    private long lastBits;
+    private byte[] line;
+
+    StreamSample(String family, String description, String type, String sampleName, String[] tags,
+                 StreamState state, ToDoubleFunction<StreamState> value) {
+        this.family = family;
+        this.description = description;
+        this.type = type;
+        this.state = state;
+        this.value = value;
+
+        StringBuilder sb = new StringBuilder(sampleName);
+        if (tags.length > 0) {
+            sb.append('{');
+            for (int i = 0; i + 1 < tags.length; i += 2) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(tags[i]).append("=\"");
+                escapeLabel(sb, tags[i + 1]);
+                sb.append('"');
+            }
+            sb.append('}');
+        }
+        sb.append(' ');
+        this.prefix = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // 返回当前取值对应的一整行，取值未变时直接复用上次的结果
+    byte[] render() {
+        double current = value.applyAsDouble(state);
+        long bits = Double.doubleToLongBits(current);
+        if (line == null || bits != lastBits) {
+            byte[] number = formatValue(current).getBytes(StandardCharsets.US_ASCII);
+            byte[] rendered = new byte[prefix.length + number.length + 1];
+            System.arraycopy(prefix, 0, rendered, 0, prefix.length);
+            System.arraycopy(number, 0, rendered, prefix.length, number.length);
+            rendered[rendered.length - 1] = '\n';
+            line = rendered;
+            lastBits = bits;
+        }
+        return line;
+    }
+
+    String getFamily() {
+        return family;
+    }
+
+    String getDescription() {
+        return description;
+    }
+
+    String getType() {
+        return type;
+    }
+
+    // 和Prometheus客户端的数值格式保持一致
+    private static String formatValue(double d) {
+        if (d == Double.POSITIVE_INFINITY) {
+            return "+Inf";
+        }
+        if (d == Double.NEGATIVE_INFINITY) {
+            return "-Inf";
+        }
+        return Double.toString(d);
+    }
+
+    private static void escapeLabel(StringBuilder sb, String s) {
+        if (s == null) {
+            return;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package io.github.devops.flvexporter.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// 时间轮调度器：每个流在自己的检测间隔内有一个固定的相位偏移，
+// 检测请求均匀分布在整个间隔内，而不是每轮同一时刻全部发出
+class StreamScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamScheduler.class);
+
+    private static final int WHEEL_SIZE = 512;
+
+    private final long tickMs;
+    private final Function<StreamState, CompletableFuture<Void>> dispatcher;
+    private final List<List<Entry>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+
+    // 上一轮检测还没结束时跳过的次数
+    private final LongAdder skipped = new LongAdder();
+
+    private volatile long lastTick;
+    private volatile boolean running;
+    private Thread thread;
+
+    StreamScheduler(long tickMs, Function<StreamState, CompletableFuture<Void>> dispatcher) {
+        this.tickMs = Math.max(1, tickMs);
+        this.dispatcher = dispatcher;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.lastTick = currentTick();
+    }
+
+    void schedule(StreamState state, long intervalMs) {
+        long intervalTicks = Math.max(1, intervalMs / tickMs);
+        // 相位由流名称决定，重启或多实例之间保持一致
+        long phase = Math.floorMod(stableHash(state.getName()), intervalTicks);
+
+        synchronized (lock) {
+            Entry previous = entries.get(state.getName());
+            if (previous != null && previous.state == state && previous.intervalTicks == intervalTicks) {
+                // 同一个流且间隔未变，保持原有相位，不重复调度
+                return;
+            }
+            // 同一个流只改变间隔时沿用原来的进行中标记，旧条目的检测还没结束时新条目不会再发起一次
+            AtomicBoolean inFlight = previous != null && previous.state == state ? previous.inFlight : new AtomicBoolean();
+            Entry entry = new Entry(state, intervalTicks, phase, inFlight);
+            entries.put(state.getName(), entry);
+            if (previous != null) {
+                previous.cancelled = true;
+            }
+            entry.fireTick = nextFireTick(entry, lastTick);
+            slot(entry.fireTick).add(entry);
+        }
+    }
+
+    void cancel(String streamName) {
+        Entry entry = entries.remove(streamName);
+        if (entry != null) {
+            // 惰性删除，时间轮转到该槽位时丢弃
+            entry.cancelled = true;
+        }
+    }
+
+    long intervalMs(String streamName) {
+        Entry entry = entries.get(streamName);
+        return entry != null ? entry.intervalTicks * tickMs : 0;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long skippedCount() {
+        return skipped.sum();
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this::run, "flv-check-scheduler");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("时间轮调度器已启动，tick: {}ms, 槽位数: {}, 流数: {}", tickMs, WHEEL_SIZE, entries.size());
+    }
+
+    void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                long now = currentTick();
+                // 时钟回拨或长时间停顿时最多补一圈，避免空转
+                long from = Math.max(lastTick + 1, now - WHEEL_SIZE + 1);
+                for (long tick = from; tick <= now; tick++) {
+                    advance(tick);
+                }
+                lastTick = Math.max(lastTick, now);
+
+                long sleepMs = (now + 1) * tickMs - System.currentTimeMillis();
+                if (sleepMs > 0) {
+                    Thread.sleep(sleepMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("时间轮调度异常: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void advance(long tick) {
+        List<Entry> due = null;
+        synchronized (lock) {
+            List<Entry> bucket = slot(tick);
+            Iterator<Entry> iterator = bucket.iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.cancelled) {
+                    iterator.remove();
+                } else if (entry.fireTick <= tick) {
+                    iterator.remove();
+                    if (due == null) {
+                        due = new ArrayList<>();
+                    }
+                    due.add(entry);
+                }
+            }
+            if (due != null) {
+                for (Entry entry : due) {
+                    entry.fireTick = nextFireTick(entry, tick);
+                    slot(entry.fireTick).add(entry);
+                }
+            }
+        }
+        if (due != null) {
+            for (Entry entry : due) {
+                fire(entry);
+            }
+        }
+    }
+
+    private void fire(Entry entry) {
+        if (!entry.inFlight.compareAndSet(false, true)) {
+            skipped.increment();
+            logger.debug("FLV流 {} 上一次检测尚未完成，跳过本次调度", entry.state.getName());
+            return;
+        }
+        try {
+            dispatcher.apply(entry.state).whenComplete((ignored, error) -> entry.inFlight.set(false));
+        } catch (Exception e) {
+            entry.inFlight.set(false);
+            logger.error("调度FLV流 {} 检测失败: {}", entry.state.getName(), e.getMessage());
+        }
+    }
+
+    // 大于 afterTick 且满足 tick % interval == phase 的最小tick
+    private static long nextFireTick(Entry entry, long afterTick) {
+        long next = afterTick + 1;
+        return next + Math.floorMod(entry.phase - next, entry.intervalTicks);
+    }
+
+    private List<Entry> slot(long tick) {
+        return wheel.get((int) Math.floorMod(tick, (long) WHEEL_SIZE));
+    }
+
+    private long currentTick() {
+        return System.currentTimeMillis() / tickMs;
+    }
+
+    private static long stableHash(String name) {
+        // FNV-1a，不依赖 String.hashCode 的实现细节
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash ^= name.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static final class Entry {
+        final StreamState state;
+        final long intervalTicks;
+        final long phase;
+        final AtomicBoolean inFlight;
+        volatile boolean cancelled;
+        long fireTick;
+
+        Entry(StreamState state, long intervalTicks, long phase, AtomicBoolean inFlight) {
+            this.state = state;
+            this.intervalTicks = intervalTicks;
+            this.phase = phase;
+            this.inFlight = inFlight;
+        }
+    }
+}
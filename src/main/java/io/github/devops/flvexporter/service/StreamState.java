@@ -0,0 +1,584 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.config.FlvConfig;
+import io.github.devops.flvexporter.flv.FlvProbeResult;
+import io.github.devops.flvexporter.flv.FlvThroughputResult;
+import io.github.devops.flvexporter.flv.FlvTimingAnalysis;
+import io.github.devops.flvexporter.flv.RunningStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToDoubleFunction;
+
+// 单个流的运行状态：在流注册时创建一次，缓存所有指标引用，
+// 状态和响应时间以基本类型保存，更新检测结果时不分配对象、不查Map
+class StreamState {
+
+    private final FlvConfig.FlvUrl flvUrl;
+
+    // 启动时从结果日志恢复的状态已过期，既不算正常也不算异常
+    static final double STATUS_UNKNOWN = -1.0;
+
+    // 1=正常, 0=异常, -1=未知
+    private volatile double status;
+    private volatile double responseTimeMs;
+    private volatile long lastCheckMillis;
+
+    // 流已从配置中移除，正在进行的检测结果直接丢弃
+    private volatile boolean removed;
+
+    // 最近一次成功解析的FLV信息，深度检测关闭时为null
+    private volatile FlvProbeResult info;
+
+    private Counter checksTotal;
+    private Counter checksSuccessful;
+    private Counter checksFailed;
+    private Timer checkDuration;
+
+    // 分阶段耗时，未开启时不注册；最近一次的值按 ProbePhase 下标保存(纳秒)
+    private Timer[] phaseTimers;
+    private final AtomicLongArray lastPhaseNanos = new AtomicLongArray(ProbePhase.VALUES.length);
+
+    // 持续读取探测，未开启时不注册
+    private DistributionSummary sustainedRate;
+    private DistributionSummary sustainedRatio;
+    private Timer sustainedStall;
+    private volatile double realtimeRatio;
+    private volatile long lastSustainedMillis;
+    private final AtomicBoolean sustainedRunning = new AtomicBoolean();
+
+    // 上次推送后是否有新的检测结果
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    // 最近N次检测结果，未开启时为null
+    private StreamHistory history;
+
+    // 自适应检测间隔，未开启时为null
+    private AdaptiveInterval.Tracker adaptive;
+
+    // 内容指纹，未开启时 stallChecks 为0：上一次检测的指纹和最后一个Tag的时间戳，以及连续未变化的次数
+    private int stallChecks;
+    private boolean checkTimestamps;
+    private boolean fingerprintSeen;
+    private long lastFingerprint;
+    private int lastTagTimestamp;
+    private int unchangedChecks;
+    private volatile double stalled;
+
+    // GOP和时间戳连续性分析，未开启时为null：最近一次的分析结果，以及所有探测中GOP长度的运行统计
+    private volatile FlvTimingAnalysis timing;
+    private RunningStats gopStats;
+    private DistributionSummary gopDuration;
+    private DistributionSummary avDrift;
+    private Counter timestampJumps;
+    private Counter timestampRollbacks;
+
+    // 事件日志的限流状态：本次连续异常开始的时间、上次输出失败日志的时间和之后未输出的失败次数
+    private long downSinceMillis;
+    private long lastFailureLogMillis;
+    private int suppressedFailures;
+
+    // 该流独占的指标，流被移除时需要一并删除
+    private final List<Meter> streamMeters = new ArrayList<>();
+
+    // 预渲染模式下该流独占的指标不注册到导出的注册中心，由 PrometheusExpositionCache 直接输出
+    private static final MeterRegistry UNEXPORTED = new SimpleMeterRegistry();
+    private final boolean prerendered;
+    private final List<StreamSample> samples = new ArrayList<>();
+
+    // 汇总模式下不注册该流独占的指标，只更新项目级的计数器和直方图
+    private final boolean aggregated;
+
+    enum MeterMode {
+        // 每个流的指标注册到Micrometer
+        REGISTERED,
+        // 每个流的指标预渲染，由 PrometheusExpositionCache 输出
+        PRERENDERED,
+        // 只导出项目级汇总，单个流的指标只对 AggregateMetrics 选出的top-K流导出
+        AGGREGATED
+    }
+
+    StreamState(FlvConfig.FlvUrl flvUrl) {
+        this(flvUrl, MeterMode.REGISTERED);
+    }
+
+    StreamState(FlvConfig.FlvUrl flvUrl, MeterMode meterMode) {
+        this.flvUrl = flvUrl;
+        this.prerendered = meterMode == MeterMode.PRERENDERED;
+        this.aggregated = meterMode == MeterMode.AGGREGATED;
+    }
+
+    void registerMeters(MeterRegistry registry, boolean deepCheck) {
+        String streamName = flvUrl.getName();
+        String project = flvUrl.getProject();
+
+        // 带项目标签的计数器，同一项目的流共享同一个实例
+        checksTotal = Counter.builder("flv_checks_total")
+                .description("Total number of FLV checks performed")
+                .tag("project", project)
+                .register(registry);
+        checksSuccessful = Counter.builder("flv_checks_successful_total")
+                .description("Total number of successful FLV checks")
+                .tag("project", project)
+                .register(registry);
+        checksFailed = Counter.builder("flv_checks_failed_total")
+                .description("Total number of failed FLV checks")
+                .tag("project", project)
+                .register(registry);
+
+        if (aggregated) {
+            // 同一项目的流共享一个直方图，各副本的桶可以直接相加
+            checkDuration = Timer.builder("flv_check_duration")
+                    .description("Time taken to check FLV streams of the project")
+                    .tag("project", project)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(60))
+                    .register(registry);
+        } else if (prerendered) {
+            // 计时器注册到不导出的注册中心，按Prometheus的summary格式由缓存直接输出
+            checkDuration = Timer.builder("flv_check_duration")
+                    .tag("stream_name", streamName)
+                    .tag("project", project)
+                    .register(UNEXPORTED);
+            String[] tags = {"stream_name", streamName, "project", project};
+            samples.add(new StreamSample("flv_check_duration_seconds", "Time taken to check FLV stream", "summary",
+                    "flv_check_duration_seconds_count", tags, this, state -> state.checkDuration.count()));
+            samples.add(new StreamSample("flv_check_duration_seconds", "Time taken to check FLV stream", "summary",
+                    "flv_check_duration_seconds_sum", tags, this, state -> state.checkDuration.totalTime(TimeUnit.SECONDS)));
+            samples.add(new StreamSample("flv_check_duration_seconds_max", "Time taken to check FLV stream", "gauge",
+                    "flv_check_duration_seconds_max", tags, this, state -> state.checkDuration.max(TimeUnit.SECONDS)));
+        } else {
+            checkDuration = Timer.builder("flv_check_duration")
+                    .description("Time taken to check FLV stream")
+                    .tag("stream_name", streamName)
+                    .tag("project", project)
+                    .register(registry);
+            streamMeters.add(checkDuration);
+        }
+
+        streamGauge(registry, "flv_stream_status", "FLV stream status (1=up, 0=down, -1=unknown)", StreamState::getStatus,
+                "stream_name", streamName, "stream_url", flvUrl.getUrl(), "project", project, "description", flvUrl.getDescription());
+        streamGauge(registry, "flv_stream_response_time_ms", "FLV stream response time in milliseconds", StreamState::getResponseTimeMs,
+                "stream_name", streamName, "stream_url", flvUrl.getUrl(), "project", project);
+
+        if (deepCheck) {
+            registerInfoGauge(registry, "flv_stream_first_keyframe_ms", "Time from request start to first FLV video keyframe in milliseconds",
+                    FlvProbeResult::getFirstKeyframeMs);
+            registerInfoGauge(registry, "flv_stream_video_width", "Video width declared in FLV onMetaData",
+                    FlvProbeResult::getWidth);
+            registerInfoGauge(registry, "flv_stream_video_height", "Video height declared in FLV onMetaData",
+                    FlvProbeResult::getHeight);
+            registerInfoGauge(registry, "flv_stream_video_framerate", "Video framerate declared in FLV onMetaData",
+                    FlvProbeResult::getFramerate);
+            registerInfoGauge(registry, "flv_stream_bitrate_kbps", "Audio + video bitrate declared in FLV onMetaData in kbps",
+                    FlvProbeResult::getBitrateKbps);
+            registerInfoGauge(registry, "flv_stream_video_codec_id", "FLV video codec id (7=AVC, 12=HEVC, -1=unknown)",
+                    FlvProbeResult::getVideoCodecId);
+            registerInfoGauge(registry, "flv_stream_audio_codec_id", "FLV audio sound format (10=AAC, 2=MP3, -1=unknown)",
+                    FlvProbeResult::getAudioCodecId);
+        }
+    }
+
+    void registerPhaseMeters(MeterRegistry registry, Duration[] slos) {
+        String project = flvUrl.getProject();
+        Timer[] timers = new Timer[ProbePhase.VALUES.length];
+        for (ProbePhase phase : ProbePhase.VALUES) {
+            // 直方图按项目聚合，同一项目的流共享
+            timers[phase.ordinal()] = Timer.builder("flv_probe_phase_duration")
+                    .description("Duration of each phase of an FLV probe request")
+                    .tag("project", project)
+                    .tag("phase", phase.tag())
+                    .serviceLevelObjectives(slos)
+                    .register(registry);
+            streamGauge(registry, "flv_stream_phase_ms",
+                    "Duration of the phase in the latest FLV probe request of the stream in milliseconds",
+                    state -> state.lastPhaseNanos.get(phase.ordinal()) / 1_000_000.0,
+                    "stream_name", flvUrl.getName(), "project", project, "phase", phase.tag());
+        }
+        this.phaseTimers = timers;
+    }
+
+    void recordPhase(ProbePhase phase, long nanos) {
+        Timer[] timers = phaseTimers;
+        if (timers == null || nanos < 0) {
+            return;
+        }
+        lastPhaseNanos.set(phase.ordinal(), nanos);
+        timers[phase.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void registerSustainedMeters(MeterRegistry registry) {
+        String project = flvUrl.getProject();
+
+        // 直方图按项目聚合，同一项目的流共享
+        sustainedRate = DistributionSummary.builder("flv_sustained_download_rate_kbps")
+                .description("Average download rate over a sustained FLV read window in kbps")
+                .tag("project", project)
+                .serviceLevelObjectives(250, 500, 1000, 2000, 4000, 8000, 16000)
+                .register(registry);
+        sustainedRatio = DistributionSummary.builder("flv_sustained_realtime_ratio")
+                .description("FLV media timestamp progress divided by wall-clock time over a sustained read window")
+                .tag("project", project)
+                .serviceLevelObjectives(0.5, 0.8, 0.9, 0.95, 1.0, 1.05, 1.2, 1.5, 2.0)
+                .register(registry);
+        sustainedStall = Timer.builder("flv_sustained_stall_duration")
+                .description("Waits for FLV data longer than the stall threshold during sustained reads")
+                .tag("project", project)
+                .serviceLevelObjectives(Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofSeconds(2),
+                        Duration.ofSeconds(5), Duration.ofSeconds(10))
+                .register(registry);
+
+        streamGauge(registry, "flv_stream_realtime_ratio", "Realtime ratio of the latest sustained read of the FLV stream",
+                StreamState::getRealtimeRatio, "stream_name", flvUrl.getName(), "project", project);
+    }
+
+    private void registerInfoGauge(MeterRegistry registry, String name, String description,
+                                   ToDoubleFunction<FlvProbeResult> value) {
+        streamGauge(registry, name, description, state -> {
+            FlvProbeResult current = state.info;
+            return current != null ? value.applyAsDouble(current) : 0.0;
+        }, "stream_name", flvUrl.getName(), "project", flvUrl.getProject());
+    }
+
+    private void streamGauge(MeterRegistry registry, String name, String description,
+                             ToDoubleFunction<StreamState> value, String... tags) {
+        if (aggregated) {
+            return;
+        }
+        if (prerendered) {
+            samples.add(new StreamSample(name, description, "gauge", name, tags, this, value));
+            return;
+        }
+        streamMeters.add(Gauge.builder(name, this, value)
+                .description(description)
+                .tags(tags)
+                .register(registry));
+    }
+
+    void initAdaptive(AdaptiveInterval policy, long baseIntervalMs, MeterRegistry registry) {
+        this.adaptive = policy.newTracker(baseIntervalMs);
+        streamGauge(registry, "flv_stream_check_interval_seconds", "Current adaptive check interval of the FLV stream in seconds",
+                state -> state.adaptive.getIntervalMs() / 1000.0, "stream_name", flvUrl.getName(), "project", flvUrl.getProject());
+    }
+
+    AdaptiveInterval.Tracker getAdaptive() {
+        return adaptive;
+    }
+
+    void initFingerprint(int stallChecks, boolean checkTimestamps, MeterRegistry registry) {
+        this.stallChecks = Math.max(1, stallChecks);
+        this.checkTimestamps = checkTimestamps;
+        streamGauge(registry, "flv_stream_stalled", "Whether the FLV stream content stopped changing between checks (1=stalled, 0=advancing)",
+                StreamState::getStalled, "stream_name", flvUrl.getName(), "project", flvUrl.getProject());
+    }
+
+    // 和上一次成功检测比较：指纹相同，或最后一个Tag的时间戳没有前进，连续 stallChecks 次后判定为卡死
+    private synchronized void recordFingerprint(FlvProbeResult info) {
+        boolean hasHash = info.getFingerprintTags() > 0;
+        boolean hasTimestamp = info.getLastTimestamp() >= 0;
+        if (!hasHash && !hasTimestamp) {
+            return;
+        }
+        boolean unchanged = fingerprintSeen
+                && ((hasHash && info.getContentHash() == lastFingerprint)
+                || (checkTimestamps && hasTimestamp && info.getLastTimestamp() == lastTagTimestamp));
+        unchangedChecks = unchanged ? unchangedChecks + 1 : 0;
+        stalled = unchangedChecks >= stallChecks ? 1.0 : 0.0;
+        fingerprintSeen = true;
+        lastFingerprint = info.getContentHash();
+        lastTagTimestamp = info.getLastTimestamp();
+    }
+
+    double getStalled() {
+        return stalled;
+    }
+
+    void initTimingAnalysis(MeterRegistry registry) {
+        String project = flvUrl.getProject();
+        this.gopStats = new RunningStats();
+
+        // 直方图和计数器按项目聚合，同一项目的流共享
+        gopDuration = DistributionSummary.builder("flv_gop_duration_seconds")
+                .description("Keyframe interval (GOP length) observed in FLV probes in seconds")
+                .tag("project", project)
+                .serviceLevelObjectives(0.5, 1, 2, 3, 4, 5, 6, 8, 10)
+                .register(registry);
+        avDrift = DistributionSummary.builder("flv_av_drift_ms")
+                .description("Absolute difference between the latest video and audio timestamps at the end of an FLV probe in milliseconds")
+                .tag("project", project)
+                .serviceLevelObjectives(50, 100, 200, 500, 1000, 2000, 5000)
+                .register(registry);
+        timestampJumps = Counter.builder("flv_timestamp_anomalies_total")
+                .description("FLV tag timestamps jumping forward beyond the threshold or going backwards within a track")
+                .tag("project", project)
+                .tag("kind", "jump")
+                .register(registry);
+        timestampRollbacks = Counter.builder("flv_timestamp_anomalies_total")
+                .description("FLV tag timestamps jumping forward beyond the threshold or going backwards within a track")
+                .tag("project", project)
+                .tag("kind", "rollback")
+                .register(registry);
+
+        String streamName = flvUrl.getName();
+        streamGauge(registry, "flv_stream_gop_seconds", "Average GOP length in the latest FLV probe in seconds",
+                state -> timingValue(state, t -> t.getGopMs() / 1000.0), "stream_name", streamName, "project", project);
+        streamGauge(registry, "flv_stream_gop_stddev_seconds", "Standard deviation of all GOP lengths observed for the FLV stream in seconds",
+                StreamState::getGopStddevSeconds, "stream_name", streamName, "project", project);
+        streamGauge(registry, "flv_stream_frame_rate", "Video frame rate measured from FLV tag timestamps in the latest probe",
+                state -> timingValue(state, FlvTimingAnalysis::getFrameRate), "stream_name", streamName, "project", project);
+        streamGauge(registry, "flv_stream_frame_rate_ratio", "Measured video frame rate divided by the onMetaData framerate",
+                StreamState::getFrameRateRatio, "stream_name", streamName, "project", project);
+        streamGauge(registry, "flv_stream_frame_interval_jitter_ms", "Standard deviation of video frame intervals in the latest FLV probe in milliseconds",
+                state -> timingValue(state, FlvTimingAnalysis::getFrameIntervalJitterMs), "stream_name", streamName, "project", project);
+        streamGauge(registry, "flv_stream_av_drift_ms", "Latest video timestamp minus latest audio timestamp at the end of the latest FLV probe in milliseconds",
+                state -> timingValue(state, t -> t.hasAudioAndVideo() ? t.getDriftMs() : 0.0), "stream_name", streamName, "project", project);
+    }
+
+    // 没有分析结果或无法计算时为0
+    private static double timingValue(StreamState state, ToDoubleFunction<FlvTimingAnalysis> value) {
+        FlvTimingAnalysis current = state.timing;
+        if (current == null) {
+            return 0.0;
+        }
+        double v = value.applyAsDouble(current);
+        return Double.isNaN(v) ? 0.0 : v;
+    }
+
+    private double getFrameRateRatio() {
+        FlvProbeResult current = info;
+        double declared = current != null ? current.getFramerate() : 0.0;
+        double measured = timingValue(this, FlvTimingAnalysis::getFrameRate);
+        return declared > 0 && measured > 0 ? measured / declared : 0.0;
+    }
+
+    private synchronized double getGopStddevSeconds() {
+        return gopStats.getCount() > 1 ? gopStats.getStddev() / 1000.0 : 0.0;
+    }
+
+    private void recordTiming(FlvTimingAnalysis analysis) {
+        synchronized (this) {
+            analysis.mergeGopInto(gopStats);
+        }
+        this.timing = analysis;
+        if (analysis.getGopCount() > 0) {
+            gopDuration.record(analysis.getGopMs() / 1000.0);
+        }
+        if (analysis.hasAudioAndVideo()) {
+            avDrift.record(Math.abs(analysis.getDriftMs()));
+        }
+        if (analysis.getJumps() > 0) {
+            timestampJumps.increment(analysis.getJumps());
+        }
+        if (analysis.getRollbacks() > 0) {
+            timestampRollbacks.increment(analysis.getRollbacks());
+        }
+    }
+
+    void initHistory(int capacity) {
+        this.history = new StreamHistory(capacity);
+    }
+
+    // 回放结果日志中的一条记录，只在启动时、开始检测之前调用
+    void restore(long timeMillis, boolean healthy, int latencyMs) {
+        if (history != null) {
+            history.record(timeMillis, healthy, latencyMs);
+        }
+        if (timeMillis >= lastCheckMillis) {
+            this.status = healthy ? 1.0 : 0.0;
+            this.responseTimeMs = healthy ? latencyMs : 0.0;
+            this.lastCheckMillis = timeMillis;
+        }
+    }
+
+    // 没有可用的历史结果，在第一次检测完成前标记为未知，避免重启后全部流被当作异常告警
+    void markUnknown() {
+        this.status = STATUS_UNKNOWN;
+        this.responseTimeMs = 0.0;
+    }
+
+    void recordStart() {
+        checksTotal.increment();
+    }
+
+    void recordSuccess(double responseTimeMs, FlvProbeResult info, long durationNanos) {
+        this.status = 1.0;
+        this.responseTimeMs = responseTimeMs;
+        if (info != null) {
+            this.info = info;
+            if (stallChecks > 0) {
+                recordFingerprint(info);
+            }
+            if (gopStats != null && info.getTiming() != null) {
+                recordTiming(info.getTiming());
+            }
+        }
+        this.lastCheckMillis = System.currentTimeMillis();
+        if (history != null) {
+            history.record(lastCheckMillis, true, responseTimeMs);
+        }
+        checksSuccessful.increment();
+        checkDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordFailure(long durationNanos) {
+        // 失败的流：记录状态为0，响应时间强制设为0
+        this.status = 0.0;
+        this.responseTimeMs = 0.0;
+        this.lastCheckMillis = System.currentTimeMillis();
+        if (history != null) {
+            history.record(lastCheckMillis, false, TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        }
+        checksFailed.increment();
+        checkDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    synchronized void markDown(long now) {
+        this.downSinceMillis = now;
+        this.lastFailureLogMillis = now;
+        this.suppressedFailures = 0;
+    }
+
+    // 返回异常持续的毫秒数，重启后从结果日志恢复的异常不知道开始时间，返回0
+    synchronized long markUp(long now) {
+        long downFor = downSinceMillis > 0 ? now - downSinceMillis : 0;
+        this.downSinceMillis = 0;
+        this.lastFailureLogMillis = 0;
+        this.suppressedFailures = 0;
+        return downFor;
+    }
+
+    // 连续异常期间每隔 intervalMs 最多输出一次失败日志：允许输出时返回上次输出后未输出的次数，否则返回-1
+    synchronized int tryLogFailure(long now, long intervalMs) {
+        if (now - lastFailureLogMillis < intervalMs) {
+            suppressedFailures++;
+            return -1;
+        }
+        int skipped = suppressedFailures;
+        this.lastFailureLogMillis = now;
+        this.suppressedFailures = 0;
+        return skipped;
+    }
+
+    synchronized long getDownSinceMillis() {
+        return downSinceMillis;
+    }
+
+    // 距上次持续探测超过间隔且当前没有在执行时返回true，调用方结束后必须调用 finishSustained
+    boolean tryStartSustained(long now, long intervalMs) {
+        if (now - lastSustainedMillis < intervalMs) {
+            return false;
+        }
+        return sustainedRunning.compareAndSet(false, true);
+    }
+
+    void finishSustained(boolean executed) {
+        if (executed) {
+            lastSustainedMillis = System.currentTimeMillis();
+        }
+        sustainedRunning.set(false);
+    }
+
+    void recordSustained(FlvThroughputResult result) {
+        this.realtimeRatio = result.getRealtimeRatio();
+        sustainedRate.record(result.getDownloadRateKbps());
+        sustainedRatio.record(realtimeRatio);
+        for (int i = 0; i < result.getStallSampleCount(); i++) {
+            sustainedStall.record(result.getStallNanos(i), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // 从注册中心删除该流独占的指标，项目级计数器由其他流共享，保留不动
+    void removeMeters(MeterRegistry registry) {
+        for (Meter meter : streamMeters) {
+            registry.remove(meter);
+        }
+        streamMeters.clear();
+        if (prerendered && checkDuration != null) {
+            UNEXPORTED.remove(checkDuration);
+        }
+    }
+
+    // 从干净变为有更新时返回true，调用方据此把流加入待推送队列
+    boolean markDirty() {
+        return dirty.compareAndSet(false, true);
+    }
+
+    void clearDirty() {
+        dirty.set(false);
+    }
+
+    void markRemoved() {
+        this.removed = true;
+    }
+
+    boolean isRemoved() {
+        return removed;
+    }
+
+    // URL、项目和描述都决定了指标标签，任一变化都视为不同的流
+    boolean isSameStream(FlvConfig.FlvUrl other) {
+        return flvUrl.getUrl().equals(other.getUrl())
+                && flvUrl.getProject().equals(other.getProject())
+                && flvUrl.getDescription().equals(other.getDescription());
+    }
+
+    List<Meter> getStreamMeters() {
+        return streamMeters;
+    }
+
+    List<StreamSample> getSamples() {
+        return samples;
+    }
+
+    StreamHistory getHistory() {
+        return history;
+    }
+
+    FlvConfig.FlvUrl getFlvUrl() {
+        return flvUrl;
+    }
+
+    String getName() {
+        return flvUrl.getName();
+    }
+
+    String getProject() {
+        return flvUrl.getProject();
+    }
+
+    double getStatus() {
+        return status;
+    }
+
+    boolean isHealthy() {
+        return status == 1.0;
+    }
+
+    double getResponseTimeMs() {
+        return responseTimeMs;
+    }
+
+    double getRealtimeRatio() {
+        return realtimeRatio;
+    }
+
+    long getLastCheckMillis() {
+        return lastCheckMillis;
+    }
+
+    FlvProbeResult getInfo() {
+        return info;
+    }
+}
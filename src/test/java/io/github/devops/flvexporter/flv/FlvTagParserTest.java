@@ -0,0 +1,187 @@
+package io.github.devops.flvexporter.flv;
+
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlvTagParserTest {
+
+    @Test
+    void parsesMetadataAndFirstKeyframe() {
+        Buffer flv = header();
+        writeTag(flv, FlvTagParser.TAG_SCRIPT, 0, metadata());
+        writeTag(flv, FlvTagParser.TAG_VIDEO, 0, new byte[]{0x17, 0, 0, 0, 0}); // AVC序列头
+        writeTag(flv, FlvTagParser.TAG_AUDIO, 0, new byte[]{(byte) 0xAF, 0, 0x12});
+        writeTag(flv, FlvTagParser.TAG_VIDEO, 40, new byte[]{0x17, 1, 0, 0, 0, 0x65});
+
+        FlvProbeResult result = new FlvTagParser().parse(flv, 1 << 20, System.nanoTime());
+
+        assertTrue(result.isValid());
+        assertTrue(result.isMetadataSeen());
+        assertTrue(result.isKeyframeSeen());
+        assertEquals(40, result.getFirstKeyframeTimestamp());
+        assertTrue(result.getValidatedAtNanos() > 0);
+        assertEquals(1280.0, result.getWidth());
+        assertEquals(720.0, result.getHeight());
+        assertEquals(25.0, result.getFramerate());
+        assertEquals(2628.0, result.getBitrateKbps());
+        assertEquals(7, result.getVideoCodecId());
+        assertEquals(10, result.getAudioCodecId());
+    }
+
+    @Test
+    void rejectsHtmlErrorPage() {
+        Buffer html = new Buffer().writeUtf8("<html><body>502 Bad Gateway</body></html>");
+
+        FlvProbeResult result = new FlvTagParser().parse(html, 1 << 20, System.nanoTime());
+
+        assertFalse(result.isValid());
+        assertNotNull(result.getError());
+    }
+
+    @Test
+    void rejectsPreviousTagSizeMismatch() {
+        Buffer flv = header();
+        flv.writeByte(FlvTagParser.TAG_AUDIO);
+        flv.writeByte(0).writeShort(2);      // DataSize
+        flv.writeByte(0).writeShort(0).writeByte(0); // Timestamp
+        flv.writeByte(0).writeShort(0);      // StreamID
+        flv.writeByte(0xAF).writeByte(1);
+        flv.writeInt(99);
+
+        FlvProbeResult result = new FlvTagParser().parse(flv, 1 << 20, System.nanoTime());
+
+        assertFalse(result.isValid());
+        assertNotNull(result.getError());
+    }
+
+    @Test
+    void rejectsDataOffsetBeyondLimit() {
+        Buffer flv = new Buffer()
+                .write(new byte[]{'F', 'L', 'V', 1, 0x05})
+                .writeInt(0xFFFFFFF0)
+                .write(new byte[4096]);
+
+        FlvProbeResult result = new FlvTagParser().parse(flv, 1 << 20, System.nanoTime());
+
+        assertFalse(result.isValid());
+        assertNotNull(result.getError());
+        assertEquals(9, result.getBytesRead());
+    }
+
+    @Test
+    void largeMetadataStaysWithinReadBudget() {
+        Buffer flv = header();
+        Buffer amf = new Buffer();
+        amf.writeByte(2).writeShort(10).writeUtf8("onMetaData");
+        amf.writeByte(8).writeInt(1);
+        // 4MB的AMF长字符串
+        amf.writeShort(7).writeUtf8("comment").writeByte(12).writeInt(4 << 20).write(new byte[4 << 20]);
+        amf.writeShort(0).writeByte(9);
+        writeTag(flv, FlvTagParser.TAG_SCRIPT, 0, amf.readByteArray());
+        writeTag(flv, FlvTagParser.TAG_VIDEO, 40, new byte[]{0x17, 1, 0, 0, 0, 0x65});
+
+        FlvProbeResult result = new FlvTagParser().parse(flv, 64 * 1024, System.nanoTime());
+
+        assertTrue(result.isHeaderValid());
+        assertFalse(result.isMetadataSeen());
+        assertTrue(result.getBytesRead() <= 64 * 1024, "bytesRead=" + result.getBytesRead());
+    }
+
+    @Test
+    void fingerprintsVideoPayloadsButNotSequenceHeaders() {
+        FlvProbeResult first = new FlvTagParser(2).parse(frames(0, (byte) 0x65, 1000), 1 << 20, System.nanoTime());
+        // 序列头不同、负载相同：指纹不变
+        FlvProbeResult repeated = new FlvTagParser(2).parse(frames(1, (byte) 0x65, 1000), 1 << 20, System.nanoTime());
+        FlvProbeResult advanced = new FlvTagParser(2).parse(frames(0, (byte) 0x66, 3000), 1 << 20, System.nanoTime());
+
+        assertTrue(first.isValid());
+        assertEquals(2, first.getFingerprintTags());
+        assertEquals(1040, first.getLastTimestamp());
+        assertEquals(first.getContentHash(), repeated.getContentHash());
+        assertNotEquals(first.getContentHash(), advanced.getContentHash());
+        assertEquals(3040, advanced.getLastTimestamp());
+    }
+
+    @Test
+    void analysesGopFrameRateAndTimestampAnomalies() {
+        Buffer flv = header();
+        writeTag(flv, FlvTagParser.TAG_SCRIPT, 0, metadata());
+        writeTag(flv, FlvTagParser.TAG_VIDEO, 0, new byte[]{0x17, 0, 0, 0, 0});
+        writeTag(flv, FlvTagParser.TAG_AUDIO, 0, new byte[]{(byte) 0xAF, 0, 0x12});
+        // 25fps，每50帧一个关键帧，即GOP为2秒
+        for (int i = 0; i < 100; i++) {
+            byte head = (byte) (i % 50 == 0 ? 0x17 : 0x27);
+            writeTag(flv, FlvTagParser.TAG_VIDEO, 10000 + 40 * i, new byte[]{head, 1, 0, 0, 0, 0x41});
+            writeTag(flv, FlvTagParser.TAG_AUDIO, 10005 + 40 * i, new byte[]{(byte) 0xAF, 1, 0x21});
+        }
+        writeTag(flv, FlvTagParser.TAG_VIDEO, 20000, new byte[]{0x27, 1, 0, 0, 0, 0x41});
+        writeTag(flv, FlvTagParser.TAG_AUDIO, 9000, new byte[]{(byte) 0xAF, 1, 0x21});
+
+        FlvProbeResult result = new FlvTagParser(0, true, 1000).parse(flv, 1 << 20, System.nanoTime());
+        FlvTimingAnalysis timing = result.getTiming();
+
+        assertTrue(result.isValid());
+        assertNotNull(timing);
+        assertEquals(101, timing.getVideoFrames());
+        assertEquals(101, timing.getAudioFrames());
+        assertEquals(1, timing.getGopCount());
+        assertEquals(2000.0, timing.getGopMs());
+        assertEquals(25.0, timing.getFrameRate());
+        assertEquals(0.0, timing.getFrameIntervalJitterMs());
+        assertEquals(1, timing.getJumps());
+        assertEquals(1, timing.getRollbacks());
+        assertEquals(11000, timing.getDriftMs());
+    }
+
+    private static Buffer frames(int sequenceHeaderByte, byte payload, int timestamp) {
+        Buffer flv = header();
+        writeTag(flv, FlvTagParser.TAG_VIDEO, 0, new byte[]{0x17, 0, 0, 0, 0, (byte) sequenceHeaderByte});
+        writeTag(flv, FlvTagParser.TAG_VIDEO, timestamp, new byte[]{0x17, 1, 0, 0, 0, payload, payload});
+        writeTag(flv, FlvTagParser.TAG_VIDEO, timestamp + 40, new byte[]{0x27, 1, 0, 0, 0, 0x41, payload});
+        return flv;
+    }
+
+    private static Buffer header() {
+        return new Buffer()
+                .write(new byte[]{'F', 'L', 'V', 1, 0x05})
+                .writeInt(9)
+                .writeInt(0);
+    }
+
+    private static void writeTag(Buffer out, int type, int timestamp, byte[] data) {
+        out.writeByte(type);
+        out.writeByte(data.length >> 16).writeShort(data.length & 0xFFFF);
+        out.writeByte((timestamp >> 16) & 0xFF).writeShort(timestamp & 0xFFFF).writeByte((timestamp >>> 24) & 0xFF);
+        out.writeByte(0).writeShort(0);
+        out.write(data);
+        out.writeInt(11 + data.length);
+    }
+
+    private static byte[] metadata() {
+        Buffer amf = new Buffer();
+        amf.writeByte(2).writeShort(10).writeUtf8("onMetaData");
+        amf.writeByte(8).writeInt(6);
+        number(amf, "width", 1280);
+        number(amf, "height", 720);
+        amf.writeShort(7).writeUtf8("encoder").writeByte(2).writeShort(3).writeUtf8("obs");
+        number(amf, "framerate", 25);
+        number(amf, "videodatarate", 2500);
+        number(amf, "audiodatarate", 128);
+        number(amf, "videocodecid", 7);
+        amf.writeShort(0).writeByte(9);
+        return amf.readByteArray();
+    }
+
+    private static void number(Buffer amf, String key, double value) {
+        amf.writeShort(key.length()).write(key.getBytes(StandardCharsets.US_ASCII));
+        amf.writeByte(0).writeLong(Double.doubleToLongBits(value));
+    }
+}
@@ -0,0 +1,423 @@
+package io.github.devops.flvexporter.mock;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// 本机模拟的FLV源站，只用于测试：/live/s{i}.flv 对应第i个虚拟流，行为和延迟由流序号和种子确定，
+// 同一个流每次请求的表现相同，测试可以通过 plan(i) 得到预期结果。
+// 延迟和卡顿都交给定时线程处理，不占用处理线程，1万个以上的流只需要少量线程
+public final class MockFlvOrigin implements Closeable {
+
+    public enum Behavior {
+        // 正常的FLV流
+        OK,
+        // 响应头迟迟不返回
+        SLOW_START,
+        // 返回FLV头和元数据后停顿，再发送关键帧
+        STALL,
+        // 502错误
+        ERROR_5XX,
+        // 200但内容是HTML错误页
+        HTML_ERROR,
+        // 200但FLV签名错误
+        BAD_HEADER
+    }
+
+    private static final Pattern STREAM_PATH = Pattern.compile("^/live/s(\\d+)\\.flv$");
+    private static final Pattern RANGE = Pattern.compile("^bytes=(\\d+)-(\\d*)$");
+
+    private static final byte[] HTML = "<html><head><title>502 Bad Gateway</title></head><body>502 Bad Gateway</body></html>"
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FLV;
+    // FLV头和元数据Tag的长度，STALL在这个位置停顿
+    private static final int STALL_OFFSET;
+    private static final byte[] BAD_FLV;
+
+    static {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(48 * 1024);
+        out.writeBytes(new byte[]{'F', 'L', 'V', 1, 0x05, 0, 0, 0, 9, 0, 0, 0, 0});
+        writeTag(out, 18, 0, metadata());
+        STALL_OFFSET = out.size();
+        writeTag(out, 9, 0, new byte[]{0x17, 0, 0, 0, 0, 1, 0x64, 0, 0x1F});        // AVC序列头
+        writeTag(out, 8, 0, new byte[]{(byte) 0xAF, 0, 0x12, 0x10});                  // AAC序列头
+        writeTag(out, 9, 0, frame(0x17, 4096));                                         // 关键帧
+        for (int i = 1; i <= 30; i++) {
+            writeTag(out, 9, i * 40, frame(0x27, 1024));
+        }
+        FLV = out.toByteArray();
+        BAD_FLV = FLV.clone();
+        BAD_FLV[2] = 'X';
+    }
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ScheduledExecutorService timers;
+    private final long seed;
+    private final Behavior[] mix;
+    private final Map<Behavior, Latency> delays;
+    private final Latency firstByte;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private MockFlvOrigin(Builder builder) throws IOException {
+        this.seed = builder.seed;
+        this.firstByte = builder.firstByte;
+        this.delays = new EnumMap<>(builder.delays);
+        int total = 0;
+        for (int weight : builder.weights.values()) {
+            total += weight;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("至少需要一种行为的权重大于0");
+        }
+        this.mix = new Behavior[total];
+        int i = 0;
+        for (Map.Entry<Behavior, Integer> entry : builder.weights.entrySet()) {
+            for (int n = 0; n < entry.getValue(); n++) {
+                mix[i++] = entry.getKey();
+            }
+        }
+
+        AtomicInteger index = new AtomicInteger();
+        this.handlers = Executors.newFixedThreadPool(builder.threads, r -> daemon(r, "mock-origin-" + index.incrementAndGet()));
+        this.timers = Executors.newScheduledThreadPool(builder.threads, r -> daemon(r, "mock-origin-timer-" + index.incrementAndGet()));
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), builder.port), builder.backlog);
+        server.setExecutor(handlers);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String url(int stream) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/live/s" + stream + ".flv";
+    }
+
+    // 第stream个流的行为和延迟，与请求顺序无关
+    public StreamPlan plan(int stream) {
+        SplittableRandom random = new SplittableRandom(seed ^ (stream * 0x9E3779B97F4A7C15L));
+        Behavior behavior = mix[random.nextInt(mix.length)];
+        long firstByteMs = firstByte.sample(random);
+        long delayMs = 0;
+        Latency delay = delays.get(behavior);
+        if (delay != null) {
+            delayMs = delay.sample(random);
+        }
+        if (behavior == Behavior.SLOW_START) {
+            firstByteMs += delayMs;
+            delayMs = 0;
+        }
+        return new StreamPlan(behavior, firstByteMs, delayMs);
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void handle(HttpExchange exchange) {
+        requests.incrementAndGet();
+        inFlight.incrementAndGet();
+        Matcher matcher = STREAM_PATH.matcher(exchange.getRequestURI().getPath());
+        if (!matcher.matches()) {
+            respondNow(exchange, 404, "text/plain", new byte[0], 0, 0);
+            return;
+        }
+        StreamPlan plan = plan(Integer.parseInt(matcher.group(1)));
+        int[] range = range(exchange.getRequestHeaders().getFirst("Range"));
+        timers.schedule(() -> respond(exchange, plan, range), plan.getFirstByteMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private void respond(HttpExchange exchange, StreamPlan plan, int[] range) {
+        switch (plan.getBehavior()) {
+            case ERROR_5XX:
+                respondNow(exchange, 502, "text/html", HTML, 0, HTML.length);
+                break;
+            case HTML_ERROR:
+                respondNow(exchange, 200, "text/html", HTML, 0, HTML.length);
+                break;
+            case BAD_HEADER:
+                respondFlv(exchange, BAD_FLV, range, 0);
+                break;
+            case STALL:
+                respondFlv(exchange, FLV, range, plan.getStallMs());
+                break;
+            default:
+                respondFlv(exchange, FLV, range, 0);
+                break;
+        }
+    }
+
+    private void respondFlv(HttpExchange exchange, byte[] body, int[] range, long stallMs) {
+        int start = range != null ? Math.min(range[0], body.length) : 0;
+        int end = range != null ? Math.min(range[1], body.length) : body.length;
+        int status = range != null ? 206 : 200;
+        if (range != null) {
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + body.length);
+        }
+        if (stallMs <= 0 || STALL_OFFSET <= start || STALL_OFFSET >= end) {
+            respondNow(exchange, status, "video/x-flv", body, start, end);
+            return;
+        }
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "video/x-flv");
+            exchange.sendResponseHeaders(status, end - start);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body, start, STALL_OFFSET - start);
+            out.flush();
+        } catch (IOException e) {
+            finish(exchange);
+            return;
+        }
+        timers.schedule(() -> {
+            try {
+                exchange.getResponseBody().write(body, STALL_OFFSET, end - STALL_OFFSET);
+            } catch (IOException e) {
+                // 客户端已超时断开
+            } finally {
+                finish(exchange);
+            }
+        }, stallMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void respondNow(HttpExchange exchange, int status, String contentType, byte[] body, int start, int end) {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(status, end > start ? end - start : -1);
+            if (end > start) {
+                exchange.getResponseBody().write(body, start, end - start);
+            }
+        } catch (IOException e) {
+            // 客户端读到关键帧后会提前断开，剩余数据写入失败属于正常情况
+        } finally {
+            finish(exchange);
+        }
+    }
+
+    private void finish(HttpExchange exchange) {
+        exchange.close();
+        inFlight.decrementAndGet();
+    }
+
+    // 只支持 bytes=start-end 形式，返回 [start, end)
+    private static int[] range(String header) {
+        if (header == null) {
+            return null;
+        }
+        Matcher matcher = RANGE.matcher(header.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        long start = Long.parseLong(matcher.group(1));
+        long end = matcher.group(2).isEmpty() ? Integer.MAX_VALUE : Long.parseLong(matcher.group(2)) + 1;
+        return new int[]{(int) Math.min(start, Integer.MAX_VALUE), (int) Math.min(end, Integer.MAX_VALUE)};
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        timers.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    private static void writeTag(ByteArrayOutputStream out, int type, int timestamp, byte[] data) {
+        out.write(type);
+        out.write(data.length >> 16);
+        out.write(data.length >> 8);
+        out.write(data.length);
+        out.write(timestamp >> 16);
+        out.write(timestamp >> 8);
+        out.write(timestamp);
+        out.write(timestamp >>> 24);
+        out.write(0);
+        out.write(0);
+        out.write(0);
+        out.writeBytes(data);
+        int size = 11 + data.length;
+        out.write(size >>> 24);
+        out.write(size >> 16);
+        out.write(size >> 8);
+        out.write(size);
+    }
+
+    private static byte[] frame(int head, int size) {
+        byte[] data = new byte[size];
+        data[0] = (byte) head;
+        data[1] = 1;
+        return data;
+    }
+
+    private static byte[] metadata() {
+        ByteArrayOutputStream amf = new ByteArrayOutputStream();
+        amfString(amf, "onMetaData");
+        amf.write(8);
+        amf.writeBytes(new byte[]{0, 0, 0, 5});
+        amfNumber(amf, "width", 1280);
+        amfNumber(amf, "height", 720);
+        amfNumber(amf, "framerate", 25);
+        amfNumber(amf, "videodatarate", 2500);
+        amfNumber(amf, "videocodecid", 7);
+        amf.writeBytes(new byte[]{0, 0, 9});
+        return amf.toByteArray();
+    }
+
+    private static void amfString(ByteArrayOutputStream amf, String value) {
+        amf.write(2);
+        amfKey(amf, value);
+    }
+
+    private static void amfKey(ByteArrayOutputStream amf, String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.US_ASCII);
+        amf.write(bytes.length >> 8);
+        amf.write(bytes.length);
+        amf.writeBytes(bytes);
+    }
+
+    private static void amfNumber(ByteArrayOutputStream amf, String key, double value) {
+        amfKey(amf, key);
+        amf.write(0);
+        long bits = Double.doubleToLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            amf.write((int) (bits >>> shift));
+        }
+    }
+
+    public static final class StreamPlan {
+        private final Behavior behavior;
+        private final long firstByteMs;
+        private final long stallMs;
+
+        StreamPlan(Behavior behavior, long firstByteMs, long stallMs) {
+            this.behavior = behavior;
+            this.firstByteMs = firstByteMs;
+            this.stallMs = stallMs;
+        }
+
+        public Behavior getBehavior() {
+            return behavior;
+        }
+
+        public long getFirstByteMs() {
+            return firstByteMs;
+        }
+
+        public long getStallMs() {
+            return stallMs;
+        }
+
+        @Override
+        public String toString() {
+            return behavior + "(firstByte=" + firstByteMs + "ms, stall=" + stallMs + "ms)";
+        }
+    }
+
+    // 延迟分布，按流序号确定的随机数采样
+    public interface Latency {
+
+        long sample(SplittableRandom random);
+
+        static Latency fixed(long ms) {
+            return random -> ms;
+        }
+
+        static Latency uniform(long minMs, long maxMs) {
+            return random -> minMs + random.nextLong(maxMs - minMs + 1);
+        }
+
+        // 对数正态分布，接近真实CDN首字节耗时的长尾形状
+        static Latency logNormal(double medianMs, double sigma) {
+            return random -> {
+                // Box-Muller
+                double u1 = 1.0 - random.nextDouble();
+                double u2 = random.nextDouble();
+                double z = Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+                return Math.round(medianMs * Math.exp(sigma * z));
+            };
+        }
+    }
+
+    public static final class Builder {
+        private int port;
+        private int backlog = 4096;
+        private int threads = 4;
+        private long seed = 42;
+        private Latency firstByte = Latency.fixed(0);
+        private final Map<Behavior, Integer> weights = new EnumMap<>(Behavior.class);
+        private final Map<Behavior, Latency> delays = new EnumMap<>(Behavior.class);
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder backlog(int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        // 所有流响应头之前的基础延迟
+        public Builder firstByte(Latency latency) {
+            this.firstByte = latency;
+            return this;
+        }
+
+        // 各行为所占的比例
+        public Builder weight(Behavior behavior, int weight) {
+            weights.put(behavior, weight);
+            return this;
+        }
+
+        // SLOW_START 额外的首字节延迟，STALL 的停顿时长
+        public Builder delay(Behavior behavior, Latency latency) {
+            delays.put(behavior, latency);
+            return this;
+        }
+
+        public MockFlvOrigin start() throws IOException {
+            if (weights.isEmpty()) {
+                weights.put(Behavior.OK, 1);
+            }
+            return new MockFlvOrigin(this);
+        }
+    }
+}
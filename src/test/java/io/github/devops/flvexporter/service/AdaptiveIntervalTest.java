@@ -0,0 +1,75 @@
+package io.github.devops.flvexporter.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveIntervalTest {
+
+    private final AdaptiveInterval policy = new AdaptiveInterval(240_000, 100, 3, 2.0, 4, 0.5, 3.0, 0);
+
+    @Test
+    void stableStreamBacksOffToMaximum() {
+        AdaptiveInterval.Tracker tracker = policy.newTracker(30_000);
+
+        assertEquals(30_000, healthy(tracker, 2));
+        assertEquals(60_000, healthy(tracker, 1));
+        assertEquals(120_000, healthy(tracker, 3));
+        assertEquals(240_000, healthy(tracker, 3));
+        assertEquals(240_000, healthy(tracker, 30));
+    }
+
+    @Test
+    void failureSnapsBackToConfiguredInterval() {
+        AdaptiveInterval.Tracker tracker = policy.newTracker(30_000);
+        healthy(tracker, 6);
+        assertEquals(120_000, tracker.getIntervalMs());
+
+        assertEquals(30_000, tracker.update(false, 0));
+        assertEquals(30_000, healthy(tracker, 2));
+        assertEquals(60_000, healthy(tracker, 1));
+    }
+
+    @Test
+    void latencySpikeSnapsBack() {
+        AdaptiveInterval.Tracker tracker = policy.newTracker(30_000);
+        healthy(tracker, 5);
+        assertEquals(60_000, tracker.getIntervalMs());
+
+        assertEquals(30_000, tracker.update(true, 1_000));
+    }
+
+    @Test
+    void flappingStreamIsCheckedMoreOften() {
+        AdaptiveInterval.Tracker tracker = policy.newTracker(30_000);
+        healthy(tracker, 3);
+        tracker.update(false, 0);
+        tracker.update(true, 100);
+        tracker.update(false, 0);
+        assertEquals(15_000, tracker.update(true, 100));
+
+        // 抖动移出考察窗口后回到配置的间隔，再按稳定性放大
+        assertEquals(15_000, healthy(tracker, 11));
+        assertEquals(30_000, healthy(tracker, 1));
+        assertEquals(60_000, healthy(tracker, 2));
+    }
+
+    @Test
+    void rebaseRestartsFromNewInterval() {
+        AdaptiveInterval.Tracker tracker = policy.newTracker(30_000);
+        healthy(tracker, 3);
+
+        tracker.rebase(30_000);
+        assertEquals(60_000, tracker.getIntervalMs());
+        tracker.rebase(10_000);
+        assertEquals(10_000, tracker.getIntervalMs());
+    }
+
+    private static long healthy(AdaptiveInterval.Tracker tracker, int checks) {
+        long interval = 0;
+        for (int i = 0; i < checks; i++) {
+            interval = tracker.update(true, 100);
+        }
+        return interval;
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.devops.flvexporter.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventRingTest {
+
+    @Test
+    void rejectsWhenFullAndReusesSlots() {
+        EventRing<Integer> ring = new EventRing<>(5);
+        assertEquals(8, ring.capacity());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(8));
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(8));
+        for (int i = 1; i <= 8; i++) {
+            assertEquals(i, ring.poll());
+        }
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void concurrentProducersLoseNothingThatWasAccepted() throws Exception {
+        EventRing<Integer> ring = new EventRing<>(1024);
+        int producers = 4;
+        int perProducer = 50000;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(producers);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    if (ring.offer(base + i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+            threads.add(t);
+            t.start();
+        }
+
+        // 每个生产者写入的值在消费端保持顺序，且不重复
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        int consumed = 0;
+        while (done.getCount() > 0 || consumed < accepted.get()) {
+            Integer value = ring.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = value / perProducer;
+            assertTrue(value > last[producer], "乱序或重复: " + value);
+            last[producer] = value;
+            consumed++;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(ring.poll());
+        assertEquals(accepted.get(), consumed);
+    }
+}
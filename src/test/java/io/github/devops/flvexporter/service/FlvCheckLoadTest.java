@@ -0,0 +1,357 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.config.FlvConfig;
+import io.github.devops.flvexporter.mock.MockFlvOrigin;
+import io.github.devops.flvexporter.mock.MockFlvOrigin.Behavior;
+import io.github.devops.flvexporter.mock.MockFlvOrigin.Latency;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 用本机模拟源站驱动 FlvCheckService 的完整检测流程，不需要访问外网。
+// 每一轮记录检测耗时、期间新增的线程数、堆内存峰值，以及健康判定和模拟源站预期结果的一致程度。
+// 小规模的一致性检查随普通构建运行；完整的压测矩阵只在 ./gradlew loadTest 时运行
+class FlvCheckLoadTest {
+
+    private static final String PROJECT = "load";
+
+    @Test
+    void verdictsMatchMockOrigin() throws Exception {
+        Settings settings = new Settings("platform", true, 20, 500, 0);
+        try (MockFlvOrigin origin = origin(settings.timeoutMs, 42)) {
+            List<CycleResult> results = run(origin, 300, settings, 1, Map.of());
+            CycleResult result = results.get(0);
+
+            assertEquals(300, result.completed, result.toString());
+            assertEquals(0, result.skipped, result.toString());
+            assertEquals(0, result.falseUp + result.falseDown, result.toString());
+            assertTrue(result.judged >= 250, result.toString());
+        }
+    }
+
+    // 参数通过系统属性传入，./gradlew loadTest -Pload.streams=20000 -Pload.threads=50,200
+    // load.flv.* 会去掉 load. 前缀后作为应用配置，例如 -Pload.flv.check.max-in-flight-per-host=256
+    @Test
+    @Tag("load")
+    void loadMatrix() throws Exception {
+        int streams = Integer.getInteger("load.streams", 10000);
+        int cycles = Integer.getInteger("load.cycles", 2);
+        String[] executors = System.getProperty("load.executors", "platform").split(",");
+        String[] deepModes = System.getProperty("load.deep", "true").split(",");
+        String[] threads = System.getProperty("load.threads", "10,50,200").split(",");
+        String[] timeouts = System.getProperty("load.timeouts", "1000,3000").split(",");
+        Map<String, Object> overrides = new HashMap<>();
+        System.getProperties().forEach((key, value) -> {
+            if (key.toString().startsWith("load.flv.")) {
+                overrides.put(key.toString().substring("load.".length()), value);
+            }
+        });
+        long deadlineMs = Long.parseLong(overrides.getOrDefault("flv.check.deadline", "0").toString());
+
+        List<CycleResult> all = new ArrayList<>();
+        for (String executor : executors) {
+            for (String deep : deepModes) {
+                for (String threadCount : threads) {
+                    for (String timeout : timeouts) {
+                        Settings settings = new Settings(executor.trim(), Boolean.parseBoolean(deep.trim()),
+                                Integer.parseInt(threadCount.trim()), Long.parseLong(timeout.trim()), deadlineMs);
+                        try (MockFlvOrigin origin = origin(settings.timeoutMs, Long.getLong("load.seed", 42))) {
+                            List<CycleResult> results = run(origin, streams, settings, cycles, overrides);
+                            results.forEach(System.out::println);
+                            all.addAll(results);
+                        }
+                    }
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.println(CycleResult.HEADER);
+        all.forEach(result -> System.out.println(result.row()));
+    }
+
+    // 80%正常流，其余为慢启动、中途卡顿、5xx、HTML错误页和FLV头错误；
+    // 慢启动和卡顿的时长分布在检测超时两侧，正反两种判定都会覆盖到
+    private static MockFlvOrigin origin(long timeoutMs, long seed) throws IOException {
+        return MockFlvOrigin.builder()
+                .seed(seed)
+                .firstByte(Latency.logNormal(40, 0.6))
+                .weight(Behavior.OK, 80)
+                .weight(Behavior.SLOW_START, 5)
+                .weight(Behavior.STALL, 5)
+                .weight(Behavior.ERROR_5XX, 4)
+                .weight(Behavior.HTML_ERROR, 3)
+                .weight(Behavior.BAD_HEADER, 3)
+                .delay(Behavior.SLOW_START, Latency.uniform(timeoutMs / 2, timeoutMs * 4))
+                .delay(Behavior.STALL, Latency.uniform(timeoutMs / 2, timeoutMs * 4))
+                .start();
+    }
+
+    private static List<CycleResult> run(MockFlvOrigin origin, int streams, Settings settings, int cycles,
+                                         Map<String, Object> overrides) throws InterruptedException {
+        Map<String, Object> properties = new HashMap<>();
+        // 不加载 application.yml 和 config/application.yml，避免检测其中配置的真实地址
+        properties.put("spring.config.name", "flv-load-test");
+        properties.put("logging.level.io.github.devops.flvexporter", System.getProperty("load.log-level", "OFF"));
+        properties.put("flv.check.executor", settings.executor);
+        properties.put("flv.check.deep.enabled", settings.deep);
+        properties.put("flv.check.threads", settings.threads);
+        properties.put("flv.check.max-in-flight", settings.threads);
+        properties.put("flv.check.virtual.max-concurrency", settings.threads);
+        properties.put("flv.check.timeout", settings.timeoutMs);
+        properties.put("flv.check.deadline", settings.deadlineMs);
+        // 只检测一次，不重试，检测耗时不受重试间隔影响
+        properties.put("flv.check.retries", 1);
+        // 所有流都在同一个Host上，熔断和单Host并发限制会掩盖检测本身的表现
+        properties.put("flv.check.circuit.enabled", false);
+        properties.put("flv.check.max-in-flight-per-host", settings.threads);
+        properties.put("flv.check.sustained.enabled", false);
+        properties.put("flv.dns.cache.enabled", false);
+        properties.putAll(overrides);
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Harness.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .properties(properties)
+                .run();
+        try {
+            FlvConfig flvConfig = context.getBean(FlvConfig.class);
+            FlvCheckService service = context.getBean(FlvCheckService.class);
+            List<String> urls = new ArrayList<>(streams);
+            for (int i = 0; i < streams; i++) {
+                urls.add(origin.url(i));
+            }
+            Map<String, List<String>> config = new HashMap<>();
+            config.put(PROJECT, urls);
+            flvConfig.setUrls(config);
+            service.reloadStreams();
+
+            List<CycleResult> results = new ArrayList<>(cycles);
+            for (int cycle = 1; cycle <= cycles; cycle++) {
+                results.add(cycle(service, origin, streams, settings, cycle));
+            }
+            return results;
+        } finally {
+            context.close();
+        }
+    }
+
+    private static CycleResult cycle(FlvCheckService service, MockFlvOrigin origin, int streams, Settings settings, int cycle)
+            throws InterruptedException {
+        System.gc();
+        Sampler sampler = new Sampler();
+        long requestsBefore = origin.getRequests();
+        // 保证本轮的检测时间严格晚于上一轮
+        Thread.sleep(5);
+        long start = System.currentTimeMillis();
+        sampler.start();
+
+        // burst模式下 checkAllStreams 返回时每个流要么有本轮的结果，要么排队超过 cycle-deadline 被跳过、状态为未知
+        service.checkAllStreams();
+        long durationMs = System.currentTimeMillis() - start;
+        sampler.stop();
+
+        List<StreamState> states = service.getStates();
+        int completed = 0;
+        int skipped = 0;
+        for (StreamState state : states) {
+            if (state.getLastCheckMillis() >= start) {
+                completed++;
+            } else if (state.getStatus() == StreamState.STATUS_UNKNOWN) {
+                skipped++;
+            }
+        }
+        CycleResult result = new CycleResult(settings, streams, cycle, durationMs, completed, skipped,
+                sampler.peakThreads - sampler.baseThreads, sampler.baseHeap, sampler.peakHeap, origin.getRequests() - requestsBefore);
+        for (StreamState state : states) {
+            if (state.getLastCheckMillis() < start) {
+                continue;
+            }
+            int index = Integer.parseInt(state.getName().substring(state.getName().lastIndexOf("_s") + 2));
+            Verdict expected = expected(origin.plan(index), settings);
+            if (expected == Verdict.AMBIGUOUS) {
+                result.ambiguous++;
+            } else {
+                result.judged++;
+                boolean expectHealthy = expected == Verdict.UP;
+                if (state.isHealthy() && !expectHealthy) {
+                    result.falseUp++;
+                } else if (!state.isHealthy() && expectHealthy) {
+                    result.falseDown++;
+                }
+            }
+        }
+        return result;
+    }
+
+    // 按 FlvCheckService 的超时推算预期结果：读取超时为2倍 timeout，整个请求不超过3倍 timeout，
+    // 也不超过从检测开始执行时计算的截止时间(deadline，默认2倍 timeout)，排队时间不计入。
+    // 延迟离超时边界太近的流判定取决于调度误差，不计入准确率
+    static Verdict expected(MockFlvOrigin.StreamPlan plan, Settings settings) {
+        switch (plan.getBehavior()) {
+            case ERROR_5XX:
+                return Verdict.DOWN;
+            case HTML_ERROR:
+            case BAD_HEADER:
+                // 不开启深度检测时只看响应码
+                return settings.deep ? Verdict.DOWN : Verdict.UP;
+            default:
+                break;
+        }
+        long readTimeout = settings.timeoutMs * 2;
+        long callTimeout = Math.min(settings.timeoutMs * 3, settings.deadlineMs > 0 ? settings.deadlineMs : settings.timeoutMs * 2);
+        long margin = Math.max(100, settings.timeoutMs / 10);
+        long firstByte = plan.getFirstByteMs();
+        long stall = plan.getStallMs();
+        if (Math.abs(firstByte - readTimeout) < margin || (stall > 0 && Math.abs(stall - readTimeout) < margin)
+                || Math.abs(firstByte + stall - callTimeout) < margin) {
+            return Verdict.AMBIGUOUS;
+        }
+        return firstByte < readTimeout && stall < readTimeout && firstByte + stall < callTimeout ? Verdict.UP : Verdict.DOWN;
+    }
+
+    enum Verdict {
+        UP, DOWN, AMBIGUOUS
+    }
+
+    static final class Settings {
+        final String executor;
+        final boolean deep;
+        final int threads;
+        final long timeoutMs;
+        // 0表示服务默认的2倍 timeout
+        final long deadlineMs;
+
+        Settings(String executor, boolean deep, int threads, long timeoutMs, long deadlineMs) {
+            this.executor = executor;
+            this.deep = deep;
+            this.threads = threads;
+            this.timeoutMs = timeoutMs;
+            this.deadlineMs = deadlineMs;
+        }
+    }
+
+    static final class CycleResult {
+        static final String HEADER = String.format("%-9s %-5s %7s %8s %7s %5s %9s %9s %7s %7s %9s %9s %8s %8s %9s %9s",
+                "executor", "deep", "threads", "timeout", "streams", "cycle", "cycle_ms", "completed", "skipped", "threads+",
+                "heap_mb", "peak_mb", "false_up", "false_dn", "ambiguous", "requests");
+
+        final Settings settings;
+        final int streams;
+        final int cycle;
+        final long durationMs;
+        final int completed;
+        final int skipped;
+        final int extraThreads;
+        final long baseHeap;
+        final long peakHeap;
+        final long requests;
+        int judged;
+        int falseUp;
+        int falseDown;
+        int ambiguous;
+
+        CycleResult(Settings settings, int streams, int cycle, long durationMs, int completed, int skipped, int extraThreads,
+                    long baseHeap, long peakHeap, long requests) {
+            this.settings = settings;
+            this.streams = streams;
+            this.cycle = cycle;
+            this.durationMs = durationMs;
+            this.completed = completed;
+            this.skipped = skipped;
+            this.extraThreads = extraThreads;
+            this.baseHeap = baseHeap;
+            this.peakHeap = peakHeap;
+            this.requests = requests;
+        }
+
+        String row() {
+            return String.format("%-9s %-5s %7d %8d %7d %5d %9d %9d %7d %7d %9.1f %9.1f %8d %8d %9d %9d",
+                    settings.executor, settings.deep, settings.threads, settings.timeoutMs, streams, cycle, durationMs,
+                    completed, skipped, extraThreads, baseHeap / 1048576.0, peakHeap / 1048576.0, falseUp, falseDown, ambiguous, requests);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("executor=%s, deep=%s, threads=%d, timeout=%dms, streams=%d, cycle=%d: %dms, completed=%d, skipped=%d, "
+                            + "threads+=%d, heap=%.1fMB, peak=%.1fMB, judged=%d, falseUp=%d, falseDown=%d, ambiguous=%d, requests=%d",
+                    settings.executor, settings.deep, settings.threads, settings.timeoutMs, streams, cycle, durationMs, completed, skipped,
+                    extraThreads, baseHeap / 1048576.0, peakHeap / 1048576.0, judged, falseUp, falseDown, ambiguous, requests);
+        }
+    }
+
+    // 检测期间每10ms采样一次线程数和堆内存，取最大值
+    private static final class Sampler implements Runnable {
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private volatile boolean running;
+        private Thread thread;
+        int baseThreads;
+        int peakThreads;
+        long baseHeap;
+        long peakHeap;
+
+        void start() {
+            baseThreads = threads.getThreadCount();
+            peakThreads = baseThreads;
+            baseHeap = memory.getHeapMemoryUsage().getUsed();
+            peakHeap = baseHeap;
+            running = true;
+            thread = new Thread(this, "load-sampler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                // 采样线程本身不计入
+                peakThreads = Math.max(peakThreads, threads.getThreadCount() - 1);
+                peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    @EnableConfigurationProperties
+    @Import({FlvConfig.class, StreamRegistry.class, FlvCheckService.class})
+    static class Harness {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.flv.FlvProbeResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HostCircuitBreakersTest {
+
+    private static final String HOST = "origin.example.com";
+
+    @Test
+    void abortedChecksDoNotOpenTheBreaker() {
+        HostCircuitBreakers breakers = new HostCircuitBreakers(new SimpleMeterRegistry(), 2, 60_000, 60_000);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(breakers.tryAcquire(HOST));
+            breakers.complete(HOST, connectionFailure(), true);
+        }
+        assertTrue(breakers.tryAcquire(HOST));
+        breakers.complete(HOST, connectionFailure(), false);
+        assertTrue(breakers.tryAcquire(HOST));
+        breakers.complete(HOST, connectionFailure(), false);
+        assertFalse(breakers.tryAcquire(HOST));
+    }
+
+    @Test
+    void abortedTrialReleasesTheHalfOpenSlot() throws Exception {
+        HostCircuitBreakers breakers = new HostCircuitBreakers(new SimpleMeterRegistry(), 1, 1, 1);
+        assertTrue(breakers.tryAcquire(HOST));
+        breakers.complete(HOST, connectionFailure(), false);
+        Thread.sleep(5);
+        // 熔断到期后放行一个试探请求，试探被取消时下一次检测可以重新试探
+        assertTrue(breakers.tryAcquire(HOST));
+        assertFalse(breakers.tryAcquire(HOST));
+        breakers.complete(HOST, null, true);
+        assertTrue(breakers.tryAcquire(HOST));
+    }
+
+    private static FlvProbeResult connectionFailure() {
+        FlvProbeResult result = new FlvProbeResult();
+        result.setError("IOException: Canceled");
+        result.setHealthy(false);
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.devops.flvexporter.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProbeDeadlineTest {
+
+    @Test
+    void budgetStartsWhenTheCheckStarts() throws Exception {
+        ProbeDeadline deadline = ProbeDeadline.after(10_000, 200);
+        // 排队时间不占用检测预算
+        Thread.sleep(300);
+        assertTrue(deadline.start());
+        assertTrue(deadline.isStarted());
+        assertFalse(deadline.isExpired());
+        assertTrue(deadline.remainingMillis() <= 200);
+        // 重复调用不会重新计算
+        assertTrue(deadline.start());
+        assertTrue(deadline.remainingMillis() <= 200);
+    }
+
+    @Test
+    void queuedPastTheQueueDeadlineNeverStarts() {
+        ProbeDeadline deadline = new ProbeDeadline(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(1), 10_000);
+        assertTrue(deadline.isExpired());
+        assertFalse(deadline.start());
+        assertFalse(deadline.isStarted());
+        assertTrue(deadline.tryFinish());
+    }
+
+    @Test
+    void skipAndStartAreExclusive() {
+        ProbeDeadline skipped = ProbeDeadline.after(10_000, 10_000);
+        assertTrue(skipped.trySkip());
+        assertFalse(skipped.start());
+        assertFalse(skipped.tryFinish());
+
+        ProbeDeadline running = ProbeDeadline.after(10_000, 10_000);
+        assertTrue(running.start());
+        assertFalse(running.trySkip());
+        assertTrue(running.tryFinish());
+        assertFalse(running.tryFinish());
+    }
+}
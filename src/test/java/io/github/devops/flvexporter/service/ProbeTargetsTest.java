@@ -0,0 +1,27 @@
+package io.github.devops.flvexporter.service;
+
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProbeTargetsTest {
+
+    @Test
+    void matchesExactHostsAndSubdomainWildcards() {
+        ProbeTargets targets = new ProbeTargets(new String[]{"Live.Example.com", " *.cdn.example.com "});
+        assertTrue(targets.allows(HttpUrl.get("https://live.example.com/a.flv")));
+        assertTrue(targets.allows(HttpUrl.get("http://edge1.cdn.example.com:8080/a.flv")));
+        assertFalse(targets.allows(HttpUrl.get("http://cdn.example.com/a.flv")));
+        assertFalse(targets.allows(HttpUrl.get("http://evilcdn.example.com/a.flv")));
+        assertFalse(targets.allows(HttpUrl.get("http://169.254.169.254/latest/meta-data/")));
+    }
+
+    @Test
+    void emptyListAllowsNothing() {
+        ProbeTargets targets = new ProbeTargets(new String[0]);
+        assertTrue(targets.isEmpty());
+        assertFalse(targets.allows(HttpUrl.get("https://live.example.com/a.flv")));
+    }
+}
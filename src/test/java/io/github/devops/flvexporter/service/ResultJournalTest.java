@@ -0,0 +1,118 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.config.FlvConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultJournalTest {
+
+    private static final int STREAMS = 10;
+    // 100条记录，每个流压缩后保留5条，追加到第75条时开始压缩
+    private static final long SIZE = 16 + 100 * ResultJournal.RECORD_SIZE;
+
+    @Test
+    void recordsAppendedDuringCompactionSurviveTheRewrite(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("results.journal");
+        List<StreamState> states = states();
+        CountDownLatch snapshotTaken = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ResultJournal journal = new ResultJournal(file, SIZE, () -> gated(states, snapshotTaken, resume), registry);
+
+        long base = System.currentTimeMillis();
+        for (int round = 1; round <= 8; round++) {
+            append(journal, states, base + round * 1000L);
+        }
+        // 压缩线程已读完内存中的历史记录、还没替换文件，这时追加的记录只在旧文件中
+        assertTrue(snapshotTaken.await(10, TimeUnit.SECONDS));
+        append(journal, states, base + 9 * 1000L);
+        resume.countDown();
+        journal.close();
+        assertEquals(1, registry.get("flv_journal_compactions_total").counter().count());
+        assertEquals(0, registry.get("flv_journal_dropped_total").counter().count());
+
+        List<StreamState> restored = states();
+        ResultJournal reopened = new ResultJournal(file, SIZE, () -> restored, new SimpleMeterRegistry());
+        reopened.replay();
+        reopened.close();
+        for (StreamState state : restored) {
+            List<Long> times = new ArrayList<>();
+            state.getHistory().forEach(100, (time, healthy, latency) -> times.add(time));
+            // 压缩保留的5条加上压缩期间追加的1条，最新一条没有丢失，压缩开始后追加的记录也没有重复
+            assertEquals(6, times.size(), state.getName() + ": " + times);
+            assertTrue(base + 9 * 1000L - times.get(0) < 1000, state.getName() + ": " + times);
+            for (int i = 1; i < times.size(); i++) {
+                assertEquals(1000, times.get(i - 1) - times.get(i), state.getName() + ": " + times);
+            }
+        }
+    }
+
+    private static void append(ResultJournal journal, List<StreamState> states, long time) {
+        for (StreamState state : states) {
+            state.restore(time, true, 40);
+            journal.append(state, time, true, 40);
+        }
+    }
+
+    // 第一次遍历到末尾时通知测试线程，并等待测试线程追加完记录
+    private static List<StreamState> gated(List<StreamState> states, CountDownLatch snapshotTaken, CountDownLatch resume) {
+        return new AbstractList<StreamState>() {
+            @Override
+            public StreamState get(int index) {
+                return states.get(index);
+            }
+
+            @Override
+            public int size() {
+                return states.size();
+            }
+
+            @Override
+            public Iterator<StreamState> iterator() {
+                Iterator<StreamState> delegate = states.iterator();
+                return new Iterator<StreamState>() {
+                    @Override
+                    public boolean hasNext() {
+                        if (delegate.hasNext()) {
+                            return true;
+                        }
+                        snapshotTaken.countDown();
+                        try {
+                            resume.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return false;
+                    }
+
+                    @Override
+                    public StreamState next() {
+                        return delegate.next();
+                    }
+                };
+            }
+        };
+    }
+
+    private static List<StreamState> states() {
+        List<StreamState> states = new ArrayList<>();
+        for (int i = 0; i < STREAMS; i++) {
+            StreamState state = new StreamState(new FlvConfig.FlvUrl("demo_live_" + i, "http://127.0.0.1/live/" + i + ".flv", "demo", ""));
+            state.initHistory(100);
+            states.add(state);
+        }
+        return states;
+    }
+}
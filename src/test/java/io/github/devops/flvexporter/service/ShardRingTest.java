@@ -0,0 +1,62 @@
+package io.github.devops.flvexporter.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardRingTest {
+
+    private static final int STREAMS = 20000;
+
+    @Test
+    void spreadsStreamsEvenly() {
+        ShardRing ring = new ShardRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), ShardRing.DEFAULT_VIRTUAL_NODES);
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < STREAMS; i++) {
+            owned.merge(ring.ownerOf("p" + (i % 50) + "_live_stream" + i), 1, Integer::sum);
+        }
+        assertEquals(4, owned.size());
+        for (int count : owned.values()) {
+            // 理想值5000，允许±15%
+            assertTrue(count > 4250 && count < 5750, "分配不均匀: " + owned);
+        }
+    }
+
+    @Test
+    void addingPeerMovesOnlyItsShare() {
+        ShardRing before = new ShardRing(List.of("shard-0", "shard-1", "shard-2"), ShardRing.DEFAULT_VIRTUAL_NODES);
+        ShardRing after = new ShardRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), ShardRing.DEFAULT_VIRTUAL_NODES);
+        int moved = 0;
+        for (int i = 0; i < STREAMS; i++) {
+            String name = "p" + (i % 50) + "_live_stream" + i;
+            String owner = after.ownerOf(name);
+            if (!owner.equals(before.ownerOf(name))) {
+                // 只会迁移到新副本，原有副本之间不交换
+                assertEquals("shard-3", owner);
+                moved++;
+            }
+        }
+        // 理想值为1/4
+        assertTrue(moved > STREAMS * 0.2 && moved < STREAMS * 0.3, "迁移的流数: " + moved);
+    }
+
+    @Test
+    void assignmentDoesNotDependOnPeerOrder() {
+        ShardRing a = new ShardRing(List.of("exporter-a", "exporter-b", "exporter-c"), ShardRing.DEFAULT_VIRTUAL_NODES);
+        ShardRing b = new ShardRing(List.of("exporter-c", "exporter-a", "exporter-b"), ShardRing.DEFAULT_VIRTUAL_NODES);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(a.ownerOf("stream" + i), b.ownerOf("stream" + i));
+        }
+    }
+
+    @Test
+    void rejectsDuplicatePeers() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing(List.of("a", "a"), 8));
+    }
+}
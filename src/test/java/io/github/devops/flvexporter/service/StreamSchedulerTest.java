@@ -0,0 +1,49 @@
+package io.github.devops.flvexporter.service;
+
+import io.github.devops.flvexporter.config.FlvConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamSchedulerTest {
+
+    @Test
+    void intervalChangeDoesNotOverlapPendingCheck() throws Exception {
+        StreamState state = new StreamState(new FlvConfig.FlvUrl("demo_live_1", "http://127.0.0.1/live/1.flv", "demo", ""));
+        AtomicInteger dispatched = new AtomicInteger();
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        StreamScheduler scheduler = new StreamScheduler(1, ignored -> {
+            dispatched.incrementAndGet();
+            return pending;
+        });
+        scheduler.schedule(state, 5);
+        scheduler.start();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (dispatched.get() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(1, dispatched.get());
+
+            // 检测仍在进行中时改变间隔(自适应调整或配置重载)，新条目不能再发起一次
+            scheduler.schedule(state, 10);
+            Thread.sleep(100);
+            assertEquals(1, dispatched.get());
+            assertTrue(scheduler.skippedCount() > 0);
+
+            pending.complete(null);
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (dispatched.get() == 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertTrue(dispatched.get() > 1);
+        } finally {
+            scheduler.stop();
+        }
+    }
+}